@@ -1,12 +1,22 @@
 package student;
 
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Main entry point for the program.
  */
 public final class BGArenaPlanner {
     /** default location of collection - relative to the resources directory. */
     private static final String DEFAULT_COLLECTION = "/collection.csv";
+    /** extension added to a collection file to name its snapshot. */
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
 
     /** private constructor as static class. */
     private BGArenaPlanner() {
@@ -16,15 +26,89 @@ public final class BGArenaPlanner {
     /**
      * Main entry point for the program.
      * 
-     * @param args command line arguments - not used at this time.
+     * @param args command line arguments - optionally the path of a collection csv to use
+     *             instead of the built in one. A binary snapshot of that collection is kept next
+     *             to it to speed up later starts, and changes to the file are picked up while
+     *             the program runs. When several paths are given, the collections are merged
+     *             by game id, with later files winning.
      */
     public static void main(String[] args) {
-        IPlanner planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+        Planner planner;
+        if (args.length > 1) {
+            List<Path> collections = Arrays.stream(args).map(Path::of).toList();
+            planner = new Planner(GamesLoader.loadGamesFiles(collections, MergePolicy.LATEST_WINS));
+        } else if (args.length > 0) {
+            Path collection = Path.of(args[0]);
+            planner = new Planner(loadCollection(collection));
+            watch(collection, planner);
+        } else {
+            planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+        }
         IGameList list = new GameList();
         ConsoleApp app = new ConsoleApp(list, planner);
         app.start();
     }
 
+    /**
+     * Loads a collection from the filesystem, using its snapshot when it is up to date, and
+     * writing a new snapshot when it is not or cannot be read.
+     * 
+     * The snapshot is stamped with the size and modification time the csv had before it was
+     * read, so edits made during the load make it stale. No snapshot is written when the csv
+     * cannot be loaded, or when it holds data but no games came out of it.
+     * 
+     * @param collection the collection csv
+     * @return the catalog of the games in the collection, empty if it cannot be loaded
+     */
+    static Catalog loadCollection(Path collection) {
+        Path snapshot = snapshotOf(collection);
+        try {
+            return CatalogSnapshot.readCatalog(snapshot, collection);
+        } catch (IOException | RuntimeException e) {
+            // missing, stale or corrupt past the checksum, fall back to the csv and rewrite it
+        }
+        BasicFileAttributes source;
+        Set<BoardGame> games;
+        try {
+            source = Files.readAttributes(collection, BasicFileAttributes.class);
+            games = GamesLoader.load(collection).getGames();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new Catalog(Set.of());
+        }
+        if (!games.isEmpty() || source.size() == 0) {
+            try {
+                CatalogSnapshot.write(games, snapshot, source);
+            } catch (IOException e) {
+                System.err.println("Unable to write snapshot: " + e.getMessage());
+            }
+        }
+        return new Catalog(games);
+    }
 
+    /**
+     * Get where the snapshot of a collection is kept.
+     * 
+     * @param collection the collection csv
+     * @return the snapshot file next to it
+     */
+    private static Path snapshotOf(Path collection) {
+        return Path.of(collection + SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Starts reloading the collection into the planner whenever the file changes, keeping its
+     * snapshot up to date.
+     * 
+     * @param collection the collection csv
+     * @param planner    the planner to keep up to date
+     */
+    private static void watch(Path collection, Planner planner) {
+        try {
+            new CatalogWatcher(collection, snapshotOf(collection), planner).start();
+        } catch (IOException e) {
+            System.err.println("Unable to watch " + collection + ": " + e.getMessage());
+        }
+    }
 
 }
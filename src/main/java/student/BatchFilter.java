@@ -0,0 +1,37 @@
+package student;
+
+/**
+ * A filter condition bound to a catalog that works on a block of rows at a time.
+ *
+ * The rows of a block are held in a selection vector. Each filter narrows the vector in place,
+ * keeping the rows that pass in their original order, so the next filter only looks at the rows
+ * that survived. Specialised filters do this in one tight loop over a column, which the JIT can
+ * unroll. The first filter of a scan reads a block of consecutive rows, so its loop reads the
+ * column in sequence rather than through the vector.
+ */
+@FunctionalInterface
+interface BatchFilter {
+    /**
+     * Narrows a selection vector to the rows that meet the condition.
+     *
+     * @param rows  the selection vector, overwritten with the surviving rows
+     * @param count number of rows at the start of the vector
+     * @return number of surviving rows, now at the start of the vector
+     */
+    int select(int[] rows, int count);
+
+    /**
+     * Selects the rows of a block of consecutive rows that meet the condition.
+     *
+     * @param from first row of the block
+     * @param to   one past the last row of the block
+     * @param rows selection vector to write the surviving rows to, with room for the block
+     * @return number of surviving rows, in ascending order at the start of the vector
+     */
+    default int select(int from, int to, int[] rows) {
+        for (int row = from; row < to; row++) {
+            rows[row - from] = row;
+        }
+        return select(rows, to - from);
+    }
+}
@@ -0,0 +1,85 @@
+package student;
+
+import java.util.List;
+
+/**
+ * Evaluates a list of conditions a block of rows at a time.
+ *
+ * Rows are taken {@link #BLOCK} at a time into a selection vector. The first condition reads its
+ * column for the whole block and keeps the rows that pass, and every later condition only reads
+ * the rows still in the vector. A block stops being checked as soon as its vector is empty. The
+ * rows that survive every condition are written out in the order they came in.
+ */
+final class BatchScan {
+    /** Number of rows in a block. */
+    static final int BLOCK = 1024;
+    /** Filter that keeps every row. */
+    private static final BatchFilter ALL = (rows, count) -> count;
+
+    /** private constructor to prevent instantiation. */
+    private BatchScan() {
+    }
+
+    /**
+     * Binds conditions to a catalog for batch evaluation.
+     *
+     * @param catalog    the catalog whose rows will be tested
+     * @param conditions the conditions, in the order to check them
+     * @return the batch filters, in the same order
+     */
+    static BatchFilter[] bind(Catalog catalog, List<FilterCondition> conditions) {
+        BatchFilter[] filters = new BatchFilter[conditions.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = conditions.get(i).batch(catalog);
+        }
+        return filters;
+    }
+
+    /**
+     * Selects the rows of a range of the catalog that meet every filter.
+     *
+     * @param filters the batch filters, in the order to check them
+     * @param from    first row of the range
+     * @param to      one past the last row of the range
+     * @param out     array to write the matching rows to, from position from on
+     * @return number of matching rows, in ascending order from position from of out
+     */
+    static int scan(BatchFilter[] filters, int from, int to, int[] out) {
+        BatchFilter first = filters.length == 0 ? ALL : filters[0];
+        int[] block = new int[BLOCK];
+        int count = 0;
+        for (int start = from; start < to; start += BLOCK) {
+            int n = first.select(start, Math.min(to, start + BLOCK), block);
+            for (int i = 1; i < filters.length && n > 0; i++) {
+                n = filters[i].select(block, n);
+            }
+            System.arraycopy(block, 0, out, from + count, n);
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * Narrows a part of a list of rows in place to those that meet every filter.
+     *
+     * @param filters the batch filters, in the order to check them
+     * @param rows    the rows, overwritten with the matching rows
+     * @param from    position of the first row of the part
+     * @param to      one past the position of the last row of the part
+     * @return number of matching rows, in their original order from position from of rows
+     */
+    static int filter(BatchFilter[] filters, int[] rows, int from, int to) {
+        int[] block = new int[Math.min(BLOCK, to - from)];
+        int count = 0;
+        for (int start = from; start < to; start += BLOCK) {
+            int n = Math.min(BLOCK, to - start);
+            System.arraycopy(rows, start, block, 0, n);
+            for (int i = 0; i < filters.length && n > 0; i++) {
+                n = filters[i].select(block, n);
+            }
+            System.arraycopy(block, 0, rows, from + count, n);
+            count += n;
+        }
+        return count;
+    }
+}
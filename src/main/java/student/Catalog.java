@@ -0,0 +1,567 @@
+package student;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable snapshot of every game the planner can search.
+ *
+ * A catalog is never changed once built. Reloads build a new catalog by applying a
+ * {@link CatalogDelta} to the current one, and the planner swaps the whole catalog at once, so a
+ * query always runs against one consistent version of the games. Applying a delta copies the
+ * columns of the rows it keeps, appends its games, and patches what was derived from the old
+ * catalog rather than deriving it again: the name dictionary is shared or has the new names
+ * merged in, and drops the names no row uses once they are a large part of it, built sort
+ * indexes have the new rows merged in, and histograms are kept unless the delta changes a large
+ * part of the rows.
+ *
+ * The games are stored by column: one primitive array per numeric {@link GameData} field, and a
+ * column of name ids into a {@link NameDictionary}. Filters and sorts read the arrays directly,
+ * and a {@link BoardGame} is only created when a row is handed out with {@link #game(int)}.
+ * A histogram of every column is built with the catalog, for estimating how selective a
+ * condition is. The sorted order of each field is built the first time the catalog is sorted on
+ * it, or once it has been filtered on repeatedly, and kept for as long as the catalog is in use.
+ */
+public final class Catalog {
+    /** Fields stored in int columns. */
+    private static final GameData[] INT_FIELDS = {GameData.ID, GameData.MIN_PLAYERS,
+        GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.RANK,
+        GameData.YEAR};
+    /** Fields stored in double columns. */
+    private static final GameData[] DOUBLE_FIELDS = {GameData.RATING, GameData.DIFFICULTY};
+    /** Number of filters that must ask for a field's sort index before a filter builds it. */
+    private static final int FILTER_INDEX_REQUESTS = 2;
+    /** Largest estimated fraction of the rows a filter may keep for it to build a sort index. */
+    private static final double INDEX_SELECTIVITY = 1.0 / 16;
+    /** Histograms are kept by deltas that change at most this fraction of the rows. */
+    private static final int HISTOGRAM_DRIFT = 16;
+    /** The name dictionary is compacted once more than this fraction of its names is unused. */
+    private static final int UNUSED_NAMES = 4;
+
+    /** Number of rows. */
+    private final int size;
+    /** Int columns, indexed by GameData ordinal, null for fields that are not ints. */
+    private final int[][] ints;
+    /** Double columns, indexed by GameData ordinal, null for fields that are not doubles. */
+    private final double[][] doubles;
+    /** Every distinct name, with its folded form and collation key. */
+    private final NameDictionary names;
+    /** Name id of each row. */
+    private final int[] nameIds;
+    /** Histogram of each filterable field, indexed by GameData ordinal. */
+    private final ColumnHistogram[] histograms;
+    /** Sort index of each field, indexed by GameData ordinal, built on first use. */
+    private final AtomicReferenceArray<SortIndex> sortIndexes =
+            new AtomicReferenceArray<>(GameData.values().length);
+    /** Number of times filters asked for each field's sort index, indexed by GameData ordinal. */
+    private final AtomicIntegerArray indexRequests =
+            new AtomicIntegerArray(GameData.values().length);
+    /**
+     * Compiled filters over this catalog, by normalized filter text, least recently used first.
+     * Access is synchronized on the map.
+     */
+    private final LinkedHashMap<String, IntPredicate> compiledFilters =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Builds a catalog holding the given games.
+     *
+     * @param games the games
+     */
+    public Catalog(Collection<BoardGame> games) {
+        this(Columns.of(games));
+    }
+
+    /**
+     * Builds a catalog from filled in columns.
+     *
+     * @param columns the columns
+     */
+    private Catalog(Columns columns) {
+        this(columns.rowNames, columns.ints, columns.doubles);
+    }
+
+    /**
+     * Builds a catalog from columns that are already filled in.
+     *
+     * @param rowNames name of each row
+     * @param ints     int columns, indexed by GameData ordinal, null for fields that are not ints
+     * @param doubles  double columns, indexed by GameData ordinal, null for fields that are not
+     *                 doubles
+     */
+    Catalog(String[] rowNames, int[][] ints, double[][] doubles) {
+        this.size = rowNames.length;
+        this.ints = ints;
+        this.doubles = doubles;
+        this.nameIds = new int[size];
+        this.names = NameDictionary.build(rowNames, nameIds);
+        this.histograms = buildHistograms();
+    }
+
+    /**
+     * Builds a catalog from columns and a name dictionary that are already filled in.
+     *
+     * @param ints       int columns, indexed by GameData ordinal
+     * @param doubles    double columns, indexed by GameData ordinal
+     * @param names      the name dictionary
+     * @param nameIds    name id of each row
+     * @param histograms histogram of each field, or null to build them
+     */
+    private Catalog(int[][] ints, double[][] doubles, NameDictionary names, int[] nameIds,
+            ColumnHistogram[] histograms) {
+        this.size = nameIds.length;
+        this.ints = ints;
+        this.doubles = doubles;
+        this.names = names;
+        this.nameIds = nameIds;
+        this.histograms = histograms == null ? buildHistograms() : histograms;
+    }
+
+    /**
+     * Builds the histogram of every filterable field.
+     *
+     * @return the histograms, indexed by GameData ordinal
+     */
+    private ColumnHistogram[] buildHistograms() {
+        ColumnHistogram[] built = new ColumnHistogram[GameData.values().length];
+        built[GameData.NAME.ordinal()] = ColumnHistogram.build(size, row -> nameIds[row]);
+        for (GameData field : INT_FIELDS) {
+            int[] column = ints[field.ordinal()];
+            built[field.ordinal()] = ColumnHistogram.build(size, row -> column[row]);
+        }
+        for (GameData field : DOUBLE_FIELDS) {
+            double[] column = doubles[field.ordinal()];
+            built[field.ordinal()] = ColumnHistogram.build(size, row -> column[row]);
+        }
+        return built;
+    }
+
+    /**
+     * Allocates the int columns for a number of rows.
+     *
+     * @param size number of rows
+     * @return int columns, indexed by GameData ordinal
+     */
+    static int[][] newIntColumns(int size) {
+        int[][] columns = new int[GameData.values().length][];
+        for (GameData field : INT_FIELDS) {
+            columns[field.ordinal()] = new int[size];
+        }
+        return columns;
+    }
+
+    /**
+     * Allocates the double columns for a number of rows.
+     *
+     * @param size number of rows
+     * @return double columns, indexed by GameData ordinal
+     */
+    static double[][] newDoubleColumns(int size) {
+        double[][] columns = new double[GameData.values().length][];
+        for (GameData field : DOUBLE_FIELDS) {
+            columns[field.ordinal()] = new double[size];
+        }
+        return columns;
+    }
+
+    /**
+     * Check if a field is stored in a double column rather than an int column.
+     *
+     * @param field the field
+     * @return true for rating and difficulty
+     */
+    static boolean isDecimal(GameData field) {
+        return field == GameData.RATING || field == GameData.DIFFICULTY;
+    }
+
+    /**
+     * Get the number of games in the catalog.
+     *
+     * @return number of games
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the game in a row. The game is created from the columns on every call.
+     *
+     * @param row the row
+     * @return the game
+     */
+    public BoardGame game(int row) {
+        return new BoardGame(names.name(nameIds[row]), ints[GameData.ID.ordinal()][row],
+                ints[GameData.MIN_PLAYERS.ordinal()][row],
+                ints[GameData.MAX_PLAYERS.ordinal()][row],
+                ints[GameData.MIN_TIME.ordinal()][row], ints[GameData.MAX_TIME.ordinal()][row],
+                doubles[GameData.DIFFICULTY.ordinal()][row], ints[GameData.RANK.ordinal()][row],
+                doubles[GameData.RATING.ordinal()][row], ints[GameData.YEAR.ordinal()][row]);
+    }
+
+    /**
+     * Get the id of the game in a row.
+     *
+     * @param row the row
+     * @return the game id
+     */
+    int id(int row) {
+        return ints[GameData.ID.ordinal()][row];
+    }
+
+    /**
+     * Get the column of an int field. The array is shared and must not be changed.
+     *
+     * @param field the field
+     * @return the value of the field for every row
+     * @throws IllegalArgumentException if the field is not stored as ints
+     */
+    int[] intColumn(GameData field) {
+        int[] column = ints[field.ordinal()];
+        if (column == null) {
+            throw new IllegalArgumentException("Not an int column: " + field);
+        }
+        return column;
+    }
+
+    /**
+     * Get the column of a double field. The array is shared and must not be changed.
+     *
+     * @param field the field
+     * @return the value of the field for every row
+     * @throws IllegalArgumentException if the field is not stored as doubles
+     */
+    double[] doubleColumn(GameData field) {
+        double[] column = doubles[field.ordinal()];
+        if (column == null) {
+            throw new IllegalArgumentException("Not a double column: " + field);
+        }
+        return column;
+    }
+
+    /**
+     * Get the name store of the catalog.
+     *
+     * @return the name dictionary
+     */
+    NameDictionary names() {
+        return names;
+    }
+
+    /**
+     * Get the name id of a row in the name dictionary.
+     *
+     * @param row the row
+     * @return the name id
+     */
+    int nameId(int row) {
+        return nameIds[row];
+    }
+
+    /**
+     * Get the histogram of a field. The histogram of the name holds name ids.
+     *
+     * @param field the field
+     * @return the histogram, built with the catalog
+     */
+    ColumnHistogram histogram(GameData field) {
+        return histograms[field.ordinal()];
+    }
+
+    /**
+     * Get the rows sorted on a field. The index is built on first use and then shared by every
+     * query on this catalog.
+     *
+     * @param field the field to sort on
+     * @return the sort index of the field
+     * @throws IllegalArgumentException if the field cannot be sorted on
+     */
+    SortIndex sortIndex(GameData field) {
+        SortIndex index = sortIndexes.get(field.ordinal());
+        if (index == null) {
+            sortIndexes.compareAndSet(field.ordinal(), null, SortIndex.build(this, field));
+            index = sortIndexes.get(field.ordinal());
+        }
+        return index;
+    }
+
+    /**
+     * Check if the sort index of a field has been built.
+     *
+     * @param field the field
+     * @return true if the index is built
+     */
+    boolean hasSortIndex(GameData field) {
+        return sortIndexes.get(field.ordinal()) != null;
+    }
+
+    /**
+     * Get the sort index of a field for answering a filter. Building an index sorts the whole
+     * catalog, which costs more than scanning it, so an index that is not built yet is only
+     * built for a condition estimated to keep at most 1/16 of the rows, and only once the field
+     * has been filtered on {@value #FILTER_INDEX_REQUESTS} times; until then the filter scans.
+     *
+     * @param field     the field to filter on
+     * @param condition the condition on the field, for its selectivity
+     * @return the sort index of the field, or null if it is not worth building yet
+     */
+    SortIndex filterIndex(GameData field, FilterCondition condition) {
+        SortIndex index = sortIndexes.get(field.ordinal());
+        if (index == null && condition.selectivity(this) <= INDEX_SELECTIVITY
+                && indexRequests.incrementAndGet(field.ordinal()) >= FILTER_INDEX_REQUESTS) {
+            index = sortIndex(field);
+        }
+        return index;
+    }
+
+    /**
+     * Get the cache of filters compiled for this catalog. A compiled filter reads the columns of
+     * one catalog, so the cache goes away with it. The map is kept in access order, least
+     * recently used first, and must be synchronized on while it is used.
+     *
+     * @return the compiled filters, by normalized filter text
+     */
+    LinkedHashMap<String, IntPredicate> compiledFilters() {
+        return compiledFilters;
+    }
+
+    /**
+     * Checks if a row holds exactly the same values as a game, not just the same identity.
+     *
+     * @param row  the row
+     * @param game the game
+     * @return true if every field matches
+     */
+    boolean sameValues(int row, BoardGame game) {
+        return id(row) == game.getId() && names.name(nameIds[row]).equals(game.getName())
+                && ints[GameData.MIN_PLAYERS.ordinal()][row] == game.getMinPlayers()
+                && ints[GameData.MAX_PLAYERS.ordinal()][row] == game.getMaxPlayers()
+                && ints[GameData.MIN_TIME.ordinal()][row] == game.getMinPlayTime()
+                && ints[GameData.MAX_TIME.ordinal()][row] == game.getMaxPlayTime()
+                && Double.compare(doubles[GameData.DIFFICULTY.ordinal()][row],
+                        game.getDifficulty()) == 0
+                && ints[GameData.RANK.ordinal()][row] == game.getRank()
+                && Double.compare(doubles[GameData.RATING.ordinal()][row], game.getRating()) == 0
+                && ints[GameData.YEAR.ordinal()][row] == game.getYearPublished();
+    }
+
+    /**
+     * Builds the catalog that results from applying a delta to this one. Rows whose id is not
+     * touched by the delta are carried over as they are, in the same order, and the games of
+     * the delta are added after them.
+     *
+     * @param delta the changes to apply
+     * @return the new catalog
+     */
+    public Catalog apply(CatalogDelta delta) {
+        if (delta.isEmpty()) {
+            return this;
+        }
+        return apply(delta, rowMap(delta));
+    }
+
+    /**
+     * Get where the rows of this catalog go when a delta is applied.
+     *
+     * @param delta the changes to apply
+     * @return the row in the new catalog of each row, ascending, or -1 for rows the delta drops
+     */
+    int[] rowMap(CatalogDelta delta) {
+        int[] rowMap = new int[size];
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            rowMap[row] = delta.touches(id(row)) ? -1 : kept++;
+        }
+        return rowMap;
+    }
+
+    /**
+     * Builds the catalog that results from applying a delta to this one, patching the name
+     * dictionary, histograms and built sort indexes of this catalog instead of building them
+     * again. Compiled filters are not carried over, as they read the columns of this catalog.
+     *
+     * @param delta  the changes to apply
+     * @param rowMap the row in the new catalog of each row, from {@link #rowMap(CatalogDelta)}
+     * @return the new catalog
+     */
+    Catalog apply(CatalogDelta delta, int[] rowMap) {
+        List<BoardGame> upserts = delta.upserts();
+        int kept = 0;
+        for (int row : rowMap) {
+            if (row >= 0) {
+                kept++;
+            }
+        }
+        int nextSize = kept + upserts.size();
+        int[][] nextInts = newIntColumns(nextSize);
+        for (GameData field : INT_FIELDS) {
+            copyKept(ints[field.ordinal()], nextInts[field.ordinal()], rowMap);
+        }
+        double[][] nextDoubles = newDoubleColumns(nextSize);
+        for (GameData field : DOUBLE_FIELDS) {
+            copyKept(doubles[field.ordinal()], nextDoubles[field.ordinal()], rowMap);
+        }
+        int[] nextNameIds = new int[nextSize];
+        copyKept(nameIds, nextNameIds, rowMap);
+
+        Set<String> missing = new HashSet<>();
+        for (BoardGame game : upserts) {
+            if (names.find(game.getName()) < 0) {
+                missing.add(game.getName());
+            }
+        }
+        NameDictionary nextNames = names;
+        int[] shift = null;
+        if (!missing.isEmpty()) {
+            String[] added = missing.toArray(new String[0]);
+            Arrays.sort(added, String.CASE_INSENSITIVE_ORDER);
+            shift = new int[names.size()];
+            nextNames = names.with(added, shift);
+            for (int row = 0; row < kept; row++) {
+                nextNameIds[row] = shift[nextNameIds[row]];
+            }
+        }
+        int row = kept;
+        for (BoardGame game : upserts) {
+            setValues(nextInts, nextDoubles, row, game);
+            nextNameIds[row++] = nextNames.find(game.getName());
+        }
+        boolean[] used = new boolean[nextNames.size()];
+        int usedNames = 0;
+        for (int id : nextNameIds) {
+            if (!used[id]) {
+                used[id] = true;
+                usedNames++;
+            }
+        }
+        // names of removed and renamed games would otherwise pile up over many reloads
+        if ((long) (nextNames.size() - usedNames) * UNUSED_NAMES > nextNames.size()) {
+            int[] compact = new int[nextNames.size()];
+            nextNames = nextNames.without(used, compact);
+            for (int i = 0; i < nextSize; i++) {
+                nextNameIds[i] = compact[nextNameIds[i]];
+            }
+            if (shift == null) {
+                shift = compact;
+            } else {
+                for (int id = 0; id < shift.length; id++) {
+                    shift[id] = compact[shift[id]];
+                }
+            }
+        }
+
+        ColumnHistogram[] nextHistograms = null;
+        if ((long) (size - kept + upserts.size()) * HISTOGRAM_DRIFT <= nextSize) {
+            nextHistograms = histograms.clone();
+            if (shift != null) {
+                int[] ids = shift;
+                nextHistograms[GameData.NAME.ordinal()] =
+                        histograms[GameData.NAME.ordinal()].map(id -> ids[(int) id]);
+            }
+        }
+        Catalog next = new Catalog(nextInts, nextDoubles, nextNames, nextNameIds,
+                nextHistograms);
+        for (GameData field : GameData.values()) {
+            SortIndex index = sortIndexes.get(field.ordinal());
+            if (index != null) {
+                next.sortIndexes.set(field.ordinal(), index.patch(next, field, rowMap, kept));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Copies the values of the rows that are kept into the column of a new catalog.
+     *
+     * @param from   the column of this catalog
+     * @param to     the column of the new catalog
+     * @param rowMap the row in the new catalog of each row, ascending, -1 for dropped rows
+     */
+    private void copyKept(Object from, Object to, int[] rowMap) {
+        int row = 0;
+        while (row < size) {
+            if (rowMap[row] < 0) {
+                row++;
+                continue;
+            }
+            int start = row;
+            while (row < size && rowMap[row] >= 0) {
+                row++;
+            }
+            System.arraycopy(from, start, to, rowMap[start], row - start);
+        }
+    }
+
+    /**
+     * Stores the numeric values of a game in a row of columns.
+     *
+     * @param ints    int columns, indexed by GameData ordinal
+     * @param doubles double columns, indexed by GameData ordinal
+     * @param row     the row
+     * @param game    the game
+     */
+    private static void setValues(int[][] ints, double[][] doubles, int row, BoardGame game) {
+        ints[GameData.ID.ordinal()][row] = game.getId();
+        ints[GameData.MIN_PLAYERS.ordinal()][row] = game.getMinPlayers();
+        ints[GameData.MAX_PLAYERS.ordinal()][row] = game.getMaxPlayers();
+        ints[GameData.MIN_TIME.ordinal()][row] = game.getMinPlayTime();
+        ints[GameData.MAX_TIME.ordinal()][row] = game.getMaxPlayTime();
+        ints[GameData.RANK.ordinal()][row] = game.getRank();
+        ints[GameData.YEAR.ordinal()][row] = game.getYearPublished();
+        doubles[GameData.RATING.ordinal()][row] = game.getRating();
+        doubles[GameData.DIFFICULTY.ordinal()][row] = game.getDifficulty();
+    }
+
+    /** Columns being filled in before a catalog is built from them. */
+    private static final class Columns {
+        /** Name of each row. */
+        private final String[] rowNames;
+        /** Int columns, indexed by GameData ordinal. */
+        private final int[][] ints;
+        /** Double columns, indexed by GameData ordinal. */
+        private final double[][] doubles;
+
+        /**
+         * Allocates empty columns.
+         *
+         * @param size number of rows
+         */
+        Columns(int size) {
+            this.rowNames = new String[size];
+            this.ints = newIntColumns(size);
+            this.doubles = newDoubleColumns(size);
+        }
+
+        /**
+         * Fills columns with a collection of games.
+         *
+         * @param games the games
+         * @return the columns, one row per game in iteration order
+         */
+        static Columns of(Collection<BoardGame> games) {
+            Columns columns = new Columns(games.size());
+            int row = 0;
+            for (BoardGame game : games) {
+                columns.set(row++, game);
+            }
+            return columns;
+        }
+
+        /**
+         * Stores a game in a row of the columns.
+         *
+         * @param row  the row
+         * @param game the game
+         */
+        void set(int row, BoardGame game) {
+            rowNames[row] = game.getName();
+            setValues(ints, doubles, row, game);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The difference between two versions of a catalog, keyed by {@link BoardGame#getId()}.
+ *
+ * Games are compared per id. BGG exports may list the same id more than once under different
+ * names, so all of the games with one id are treated as a group: a group that only exists in the
+ * new version is an insert, one that only exists in the old version is a delete, and one whose
+ * games differ in any value is an update that replaces the whole group.
+ */
+public final class CatalogDelta {
+    /** Ids that are removed or replaced. */
+    private final Set<Integer> touched;
+    /** Games that are added, for inserted and updated ids. */
+    private final List<BoardGame> upserts;
+    /** Number of inserted ids. */
+    private final int inserted;
+    /** Number of updated ids. */
+    private final int updated;
+    /** Number of deleted ids. */
+    private final int deleted;
+
+    /**
+     * Creates a delta.
+     *
+     * @param touched  ids that are removed or replaced
+     * @param upserts  games that are added
+     * @param inserted number of inserted ids
+     * @param updated  number of updated ids
+     * @param deleted  number of deleted ids
+     */
+    private CatalogDelta(Set<Integer> touched, List<BoardGame> upserts, int inserted,
+            int updated, int deleted) {
+        this.touched = touched;
+        this.upserts = Collections.unmodifiableList(upserts);
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Computes the changes needed to turn the current catalog into the incoming games.
+     *
+     * @param current  the catalog in use
+     * @param incoming the newly loaded games
+     * @return the delta between them
+     */
+    public static CatalogDelta between(Catalog current, Collection<BoardGame> incoming) {
+        Map<Integer, List<Integer>> before = groupRowsById(current);
+        Map<Integer, List<BoardGame>> after = groupById(incoming);
+
+        Set<Integer> touched = new HashSet<>();
+        List<BoardGame> upserts = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (Map.Entry<Integer, List<BoardGame>> entry : after.entrySet()) {
+            List<Integer> old = before.get(entry.getKey());
+            if (old == null) {
+                inserted++;
+            } else if (!sameGroup(current, old, entry.getValue())) {
+                updated++;
+                touched.add(entry.getKey());
+            } else {
+                continue;
+            }
+            upserts.addAll(entry.getValue());
+        }
+        int deleted = 0;
+        for (Integer id : before.keySet()) {
+            if (!after.containsKey(id)) {
+                deleted++;
+                touched.add(id);
+            }
+        }
+        return new CatalogDelta(touched, upserts, inserted, updated, deleted);
+    }
+
+    /**
+     * Check if the delta changes nothing.
+     *
+     * @return true if there are no inserts, updates or deletes
+     */
+    public boolean isEmpty() {
+        return inserted == 0 && updated == 0 && deleted == 0;
+    }
+
+    /**
+     * Get the number of ids that are new.
+     *
+     * @return number of inserted ids
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Get the number of ids whose games changed.
+     *
+     * @return number of updated ids
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Get the number of ids that are gone.
+     *
+     * @return number of deleted ids
+     */
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Check if the existing games with an id are removed or replaced by this delta.
+     *
+     * @param id the game id
+     * @return true if games with that id must be dropped from the old catalog
+     */
+    boolean touches(int id) {
+        return touched.contains(id);
+    }
+
+    /**
+     * Get the games to add for inserted and updated ids.
+     *
+     * @return unmodifiable list of games
+     */
+    List<BoardGame> upserts() {
+        return upserts;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogDelta{inserted=" + inserted + ", updated=" + updated + ", deleted="
+                + deleted + '}';
+    }
+
+    /**
+     * Groups games by their id.
+     *
+     * @param games the games to group
+     * @return map of id to the games with that id
+     */
+    private static Map<Integer, List<BoardGame>> groupById(Collection<BoardGame> games) {
+        Map<Integer, List<BoardGame>> groups = new HashMap<>(games.size() * 4 / 3 + 1);
+        for (BoardGame game : games) {
+            groups.computeIfAbsent(game.getId(), id -> new ArrayList<>(1)).add(game);
+        }
+        return groups;
+    }
+
+    /**
+     * Groups the rows of a catalog by game id.
+     *
+     * @param catalog the catalog
+     * @return map of id to the rows with that id
+     */
+    private static Map<Integer, List<Integer>> groupRowsById(Catalog catalog) {
+        Map<Integer, List<Integer>> groups = new HashMap<>(catalog.size() * 4 / 3 + 1);
+        for (int row = 0; row < catalog.size(); row++) {
+            groups.computeIfAbsent(catalog.id(row), id -> new ArrayList<>(1)).add(row);
+        }
+        return groups;
+    }
+
+    /**
+     * Checks if a group of rows and a group of games with the same id hold the same values.
+     *
+     * @param current  the catalog in use
+     * @param old      the rows in the current catalog
+     * @param incoming the newly loaded games
+     * @return true if every row has an identical counterpart
+     */
+    private static boolean sameGroup(Catalog current, List<Integer> old,
+            List<BoardGame> incoming) {
+        if (old.size() != incoming.size()) {
+            return false;
+        }
+        for (int row : old) {
+            if (incoming.stream().noneMatch(game -> current.sameValues(row, game))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package student;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event recorded for every collection load, mirroring {@link LoadReport}. Its duration
+ * covers the whole load, from opening the input to building the final set.
+ */
+@Name("student.CatalogLoad")
+@Label("Catalog Load")
+@Category("BG Arena Planner")
+@Description("Rows, bytes and phase timings of one collection load")
+class CatalogLoadEvent extends Event {
+    /** The file or resource that was loaded. */
+    @Label("Source")
+    String source;
+
+    /** Rows read, not counting the header. */
+    @Label("Rows Read")
+    long rowsRead;
+
+    /** Rows turned into games that are in the result. */
+    @Label("Rows Accepted")
+    long rowsAccepted;
+
+    /** Rows left out for repeating a game read before. */
+    @Label("Duplicates")
+    long duplicates;
+
+    /** Rows skipped for having too few columns. */
+    @Label("Short Rows")
+    long shortRows;
+
+    /** Rows skipped for having a bad number. */
+    @Label("Bad Numbers")
+    long badNumbers;
+
+    /** Bytes processed. */
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    /** Time spent reading. */
+    @Label("Read Time")
+    @Timespan
+    long readTime;
+
+    /** Time spent parsing. */
+    @Label("Parse Time")
+    @Timespan
+    long parseTime;
+
+    /** Time spent building the result. */
+    @Label("Build Time")
+    @Timespan
+    long buildTime;
+}
@@ -0,0 +1,251 @@
+package student;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes a compact binary snapshot of a game catalog.
+ *
+ * Loading a snapshot is a single memory mapped read with no text parsing, so it is much faster
+ * than parsing the csv the catalog came from. The layout is columnar:
+ *
+ * <pre>
+ * header:  magic, version, source size, source last modified, row count, name blob size, crc32
+ * columns: id, minplayers, maxplayers, minplaytime, maxplaytime, rank, yearpublished (int[])
+ *          average, avgweight (double[])
+ *          name offsets (int[row count + 1]), name blob (utf-8 bytes)
+ * </pre>
+ *
+ * The size and modification time of the source csv are stored in the header, so a snapshot is
+ * rejected once the csv changes. The checksum covers everything after the header.
+ */
+public final class CatalogSnapshot {
+    /** Marks a file as a catalog snapshot ("BGSN"). */
+    private static final int MAGIC = 0x4247534E;
+    /** Format version, bump whenever the layout changes. */
+    private static final int VERSION = 1;
+    /** Size of the header in bytes. */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 8;
+    /** Fields of the int columns, in file order. */
+    private static final GameData[] INT_COLUMNS = {GameData.ID, GameData.MIN_PLAYERS,
+        GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.RANK,
+        GameData.YEAR};
+    /** Fields of the double columns, in file order. */
+    private static final GameData[] DOUBLE_COLUMNS = {GameData.RATING, GameData.DIFFICULTY};
+
+    /** private constructor to prevent instantiation. */
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the games, stamped with the size and modification time the source
+     * csv has now. Only use this when the csv cannot have changed since the games were read from
+     * it; otherwise take its attributes before reading it and pass them instead.
+     *
+     * @param games    the games to store
+     * @param snapshot where to write the snapshot
+     * @param source   the csv the games were loaded from
+     * @throws IOException if the snapshot cannot be written
+     * @see #write(Collection, Path, BasicFileAttributes)
+     */
+    public static void write(Collection<BoardGame> games, Path snapshot, Path source)
+            throws IOException {
+        write(games, snapshot, Files.readAttributes(source, BasicFileAttributes.class));
+    }
+
+    /**
+     * Writes a snapshot of the games. The file is written next to its final location and then
+     * moved into place, so a reader never sees a half written snapshot.
+     *
+     * The snapshot is stamped with the given size and modification time of the source csv,
+     * which should be taken before the csv is read: if it changes while it is being read, the
+     * stamp no longer matches and the snapshot is rejected instead of serving old content.
+     *
+     * @param games    the games to store
+     * @param snapshot where to write the snapshot
+     * @param source   attributes of the csv the games were loaded from, taken before loading
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Collection<BoardGame> games, Path snapshot,
+            BasicFileAttributes source) throws IOException {
+        int rows = games.size();
+        byte[][] names = new byte[rows][];
+        int blobSize = 0;
+        int r = 0;
+        for (BoardGame game : games) {
+            names[r] = game.getName().getBytes(StandardCharsets.UTF_8);
+            blobSize += names[r++].length;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(Math.toIntExact(payloadSize(rows, blobSize)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (BoardGame game : games) {
+            payload.putInt(game.getId());
+        }
+        for (BoardGame game : games) {
+            payload.putInt(game.getMinPlayers());
+        }
+        for (BoardGame game : games) {
+            payload.putInt(game.getMaxPlayers());
+        }
+        for (BoardGame game : games) {
+            payload.putInt(game.getMinPlayTime());
+        }
+        for (BoardGame game : games) {
+            payload.putInt(game.getMaxPlayTime());
+        }
+        for (BoardGame game : games) {
+            payload.putInt(game.getRank());
+        }
+        for (BoardGame game : games) {
+            payload.putInt(game.getYearPublished());
+        }
+        for (BoardGame game : games) {
+            payload.putDouble(game.getRating());
+        }
+        for (BoardGame game : games) {
+            payload.putDouble(game.getDifficulty());
+        }
+        int offset = 0;
+        for (byte[] name : names) {
+            payload.putInt(offset);
+            offset += name.length;
+        }
+        payload.putInt(offset);
+        for (byte[] name : names) {
+            payload.put(name);
+        }
+        payload.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(source.size())
+                .putLong(source.lastModifiedTime().toMillis()).putInt(rows)
+                .putInt(blobSize).putLong(crc.getValue()).flip();
+
+        Path parent = snapshot.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || payload.hasRemaining()) {
+                    channel.write(new ByteBuffer[] {header, payload});
+                }
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            // a failed write or move must not leave a temp file behind on every startup
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Reads the games back from a snapshot.
+     *
+     * @param snapshot the snapshot file
+     * @param source   the csv the snapshot must have been written from
+     * @return the games in the snapshot
+     * @throws IOException if the snapshot cannot be read, is corrupt, was written by another
+     *                     version, or is older than the source csv
+     */
+    public static Set<BoardGame> read(Path snapshot, Path source) throws IOException {
+        Catalog catalog = readCatalog(snapshot, source);
+        Set<BoardGame> games = new HashSet<>(catalog.size() * 4 / 3 + 1);
+        for (int row = 0; row < catalog.size(); row++) {
+            games.add(catalog.game(row));
+        }
+        return games;
+    }
+
+    /**
+     * Reads a snapshot straight into a catalog. The columns of the file are copied into the
+     * columns of the catalog, without creating a BoardGame per row.
+     *
+     * @param snapshot the snapshot file
+     * @param source   the csv the snapshot must have been written from
+     * @return the catalog of the games in the snapshot
+     * @throws IOException if the snapshot cannot be read, is corrupt, was written by another
+     *                     version, or is older than the source csv
+     */
+    public static Catalog readCatalog(Path snapshot, Path source) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+            throw new IOException("Not a catalog snapshot: " + snapshot);
+        }
+        if (data.getInt() != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + snapshot);
+        }
+        if (data.getLong() != Files.size(source)
+                || data.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+            throw new IOException("Snapshot is stale: " + snapshot);
+        }
+        int rows = data.getInt();
+        int blobSize = data.getInt();
+        long checksum = data.getLong();
+        if (rows < 0 || blobSize < 0 || data.remaining() != payloadSize(rows, blobSize)) {
+            throw new IOException("Snapshot is truncated: " + snapshot);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if (crc.getValue() != checksum) {
+            throw new IOException("Snapshot checksum mismatch: " + snapshot);
+        }
+
+        int[][] ints = Catalog.newIntColumns(rows);
+        for (GameData field : INT_COLUMNS) {
+            data.asIntBuffer().get(ints[field.ordinal()]);
+            data.position(data.position() + rows * Integer.BYTES);
+        }
+        double[][] doubles = Catalog.newDoubleColumns(rows);
+        for (GameData field : DOUBLE_COLUMNS) {
+            data.asDoubleBuffer().get(doubles[field.ordinal()]);
+            data.position(data.position() + rows * Double.BYTES);
+        }
+        int[] offsets = new int[rows + 1];
+        data.asIntBuffer().get(offsets);
+        data.position(data.position() + offsets.length * Integer.BYTES);
+        byte[] blob = new byte[blobSize];
+        data.get(blob);
+
+        String[] names = new String[rows];
+        for (int r = 0; r < rows; r++) {
+            names[r] = new String(blob, offsets[r], offsets[r + 1] - offsets[r],
+                    StandardCharsets.UTF_8);
+        }
+        return new Catalog(names, ints, doubles);
+    }
+
+    /**
+     * Get the size of the data that follows the header.
+     *
+     * @param rows     number of games
+     * @param blobSize size of all names in bytes
+     * @return payload size in bytes
+     */
+    private static long payloadSize(int rows, int blobSize) {
+        return (long) rows * (INT_COLUMNS.length * Integer.BYTES
+                + DOUBLE_COLUMNS.length * Double.BYTES)
+                + (rows + 1L) * Integer.BYTES + blobSize;
+    }
+}
@@ -0,0 +1,161 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+
+/**
+ * Watches a collection file and applies its changes to a live planner.
+ *
+ * When the file changes it is loaded again, compared with the planner's current catalog by game
+ * id, and only the resulting {@link CatalogDelta} is applied. Reads that look like a file caught
+ * in the middle of being written are not applied. The watcher runs on its own daemon thread, so
+ * it never keeps the program alive.
+ */
+public final class CatalogWatcher implements AutoCloseable {
+    /** How long to wait for a file to settle after a change before reading it, in ms. */
+    private static final long SETTLE_MILLIS = 250;
+    /** A reload may delete at most this fraction of the catalog, unless the file is empty. */
+    private static final int MAX_DELETED = 2;
+
+    /** The collection file being watched. */
+    private final Path file;
+    /** Snapshot of the collection to rewrite after each reload, or null to keep none. */
+    private final Path snapshot;
+    /** The planner to update. */
+    private final Planner planner;
+    /** Watch service for the directory holding the file. */
+    private final WatchService watchService;
+    /** Thread waiting for changes. */
+    private final Thread thread;
+
+    /**
+     * Creates a watcher for a collection file. Call {@link #start()} to begin watching.
+     *
+     * @param file    the collection csv
+     * @param planner the planner to keep up to date
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public CatalogWatcher(Path file, Planner planner) throws IOException {
+        this(file, null, planner);
+    }
+
+    /**
+     * Creates a watcher for a collection file that also keeps the collection's
+     * {@link CatalogSnapshot} up to date. Call {@link #start()} to begin watching.
+     *
+     * @param file     the collection csv
+     * @param snapshot the snapshot to rewrite after each reload, or null to keep none
+     * @param planner  the planner to keep up to date
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public CatalogWatcher(Path file, Path snapshot, Planner planner) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.snapshot = snapshot;
+        this.planner = planner;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "catalog-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching for changes.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Loads the file now and applies its changes to the planner, then rewrites the snapshot.
+     *
+     * The reload is refused, leaving the planner as it was, when the file changes while it is
+     * read, or when it would delete more than half of the games while the file still has rows
+     * or has no header at all: such a file is most likely being written, not emptied on purpose.
+     *
+     * @return the delta that was applied
+     * @throws IOException if the file cannot be read, or the reload is refused
+     * @throws IllegalArgumentException if the header is missing one of the GameData columns
+     */
+    public CatalogDelta reload() throws IOException {
+        BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+        LoadResult result = GamesLoader.load(file);
+        BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (before.size() != after.size()
+                || !before.lastModifiedTime().equals(after.lastModifiedTime())) {
+            throw new IOException(file + " changed while it was read");
+        }
+        Set<BoardGame> games = result.getGames();
+        boolean empty = before.size() > 0 && result.getReport().getRowsRead() == 0;
+        CatalogDelta delta;
+        synchronized (planner) {
+            Catalog current = planner.getCatalog();
+            delta = CatalogDelta.between(current, games);
+            if (!empty && (long) delta.getDeleted() * MAX_DELETED > current.size()) {
+                throw new IOException("Reloading " + file + " would delete "
+                        + delta.getDeleted() + " of " + current.size() + " games");
+            }
+            planner.applyDelta(delta);
+        }
+        if (snapshot != null) {
+            try {
+                CatalogSnapshot.write(games, snapshot, before);
+            } catch (IOException e) {
+                System.err.println("Unable to write snapshot: " + e.getMessage());
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Waits for changes to the file and reloads it, until the watcher is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= file.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+                // let the writer finish, and fold any follow up events into this reload
+                Thread.sleep(SETTLE_MILLIS);
+                WatchKey more;
+                while ((more = watchService.poll()) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                try {
+                    reload();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Error reloading " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed, stop watching
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package student;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Equi-depth histogram of one catalog column, used to estimate how many rows a condition keeps.
+ *
+ * The histogram is a sorted random sample of the column's values. Each sampled value stands for
+ * an equal share of the rows, so the fraction of rows below a value is estimated by a binary
+ * search of the sample. Sampling keeps the cost of building a histogram the same for every
+ * catalog size, so they can be built for every column as soon as a catalog is.
+ */
+final class ColumnHistogram {
+    /** Number of rows sampled. */
+    private static final int SAMPLE = 1024;
+    /** Seed of the sample, fixed so estimates do not change between runs. */
+    private static final long SEED = 0x5EEDL;
+
+    /** The sampled values, sorted. */
+    private final double[] values;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param values the sampled values, sorted
+     */
+    private ColumnHistogram(double[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Builds the histogram of a column.
+     *
+     * @param size  number of rows in the catalog
+     * @param value value of the column for a row
+     * @return the histogram
+     */
+    static ColumnHistogram build(int size, IntToDoubleFunction value) {
+        double[] values;
+        if (size <= SAMPLE) {
+            values = new double[size];
+            for (int row = 0; row < size; row++) {
+                values[row] = value.applyAsDouble(row);
+            }
+        } else {
+            Random random = new Random(SEED);
+            values = new double[SAMPLE];
+            for (int i = 0; i < SAMPLE; i++) {
+                values[i] = value.applyAsDouble(random.nextInt(size));
+            }
+        }
+        Arrays.sort(values);
+        return new ColumnHistogram(values);
+    }
+
+    /**
+     * Get this histogram with every sampled value passed through an ascending function, such as
+     * the shift of name ids when names are added to a dictionary.
+     *
+     * @param map the function, which must keep the order of the values
+     * @return the mapped histogram
+     */
+    ColumnHistogram map(DoubleUnaryOperator map) {
+        double[] mapped = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            mapped[i] = map.applyAsDouble(values[i]);
+        }
+        return new ColumnHistogram(mapped);
+    }
+
+    /**
+     * Estimates the fraction of rows whose value is below a target.
+     *
+     * @param target    the value to compare against
+     * @param inclusive true to also count rows equal to the target
+     * @return the estimated fraction, between 0 and 1
+     */
+    double below(double target, boolean inclusive) {
+        if (values.length == 0) {
+            return 0;
+        }
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < target || (inclusive && values[mid] == target)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return (double) lo / values.length;
+    }
+
+    /**
+     * Estimates the fraction of rows whose value passes a test, by testing the sample.
+     *
+     * @param test the test
+     * @return the estimated fraction, between 0 and 1
+     */
+    double matching(DoublePredicate test) {
+        if (values.length == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (double v : values) {
+            if (test.test(v)) {
+                count++;
+            }
+        }
+        return (double) count / values.length;
+    }
+}
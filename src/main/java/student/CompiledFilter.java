@@ -0,0 +1,178 @@
+package student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.IntPredicate;
+
+/**
+ * Compiles a list of conditions into one predicate over catalog rows.
+ *
+ * The bound predicate of every condition becomes a leaf of a method handle tree, joined with
+ * short-circuiting ANDs, and the tree is installed as a constant in a new hidden class defined
+ * from {@link FilterTemplate}. The JIT then inlines each condition at its own place in the tree,
+ * so no call site is shared by different conditions and none of them turns megamorphic.
+ *
+ * Compiled filters are cached per catalog by the normalized text of their conditions, up to
+ * {@value #MAX_CACHED} of them with the least recently used dropped first, and are thrown away
+ * with the catalog. Conditions without a normalized text are evaluated in a plain
+ * loop instead.
+ */
+final class CompiledFilter {
+    /** Maximum number of compiled filters cached per catalog, least recently used go first. */
+    static final int MAX_CACHED = 256;
+    /** Lookup used to define the hidden classes, in the package of the template. */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /** IntPredicate.test, of type (IntPredicate, int)boolean. */
+    private static final MethodHandle TEST;
+    /** Always false, of type (int)boolean. */
+    private static final MethodHandle FALSE = MethodHandles.dropArguments(
+            MethodHandles.constant(boolean.class, false), 0, int.class);
+    /** Bytes of the template class, or null if they cannot be read. */
+    private static final byte[] TEMPLATE = readTemplate();
+
+    static {
+        try {
+            TEST = LOOKUP.findVirtual(IntPredicate.class, "test",
+                    MethodType.methodType(boolean.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** private constructor to prevent instantiation. */
+    private CompiledFilter() {
+    }
+
+    /**
+     * Get the predicate for a list of conditions on a catalog, compiling it on first use.
+     *
+     * @param catalog    the catalog whose rows will be tested
+     * @param conditions the conditions, in the order to check them
+     * @return a predicate that is true for the rows meeting every condition
+     */
+    static IntPredicate of(Catalog catalog, List<FilterCondition> conditions) {
+        if (conditions.isEmpty()) {
+            return row -> true;
+        }
+        if (conditions.size() == 1) {
+            return conditions.get(0).bind(catalog);
+        }
+        String key = key(conditions);
+        if (key == null) {
+            return chain(bind(catalog, conditions));
+        }
+        LinkedHashMap<String, IntPredicate> cache = catalog.compiledFilters();
+        IntPredicate filter;
+        synchronized (cache) {
+            filter = cache.get(key);
+        }
+        if (filter != null) {
+            return filter;
+        }
+        // compiled outside the lock, a filter compiled twice at once is just thrown away
+        IntPredicate compiled = compile(bind(catalog, conditions));
+        synchronized (cache) {
+            filter = cache.putIfAbsent(key, compiled);
+            Iterator<IntPredicate> eldest = cache.values().iterator();
+            while (cache.size() > MAX_CACHED) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return filter == null ? compiled : filter;
+    }
+
+    /**
+     * Get the normalized text of a list of conditions.
+     *
+     * @param conditions the conditions
+     * @return the normalized texts joined by commas, or null if a condition has none
+     */
+    static String key(List<FilterCondition> conditions) {
+        StringJoiner key = new StringJoiner(",");
+        for (FilterCondition condition : conditions) {
+            String text = condition.normalized();
+            if (text == null) {
+                return null;
+            }
+            key.add(text);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compiles bound predicates into a hidden class. Falls back to a loop if the class cannot be
+     * defined.
+     *
+     * @param tests the bound predicates, in the order to check them
+     * @return the compiled predicate
+     */
+    static IntPredicate compile(IntPredicate[] tests) {
+        if (TEMPLATE == null) {
+            return chain(tests);
+        }
+        MethodHandle filter = TEST.bindTo(tests[tests.length - 1]);
+        for (int i = tests.length - 2; i >= 0; i--) {
+            filter = MethodHandles.guardWithTest(TEST.bindTo(tests[i]), filter, FALSE);
+        }
+        try {
+            Class<?> compiled = LOOKUP.defineHiddenClassWithClassData(TEMPLATE, filter, true)
+                    .lookupClass();
+            return (IntPredicate) compiled.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return chain(tests);
+        }
+    }
+
+    /**
+     * Evaluates bound predicates one after the other, stopping at the first that fails.
+     *
+     * @param tests the bound predicates, in the order to check them
+     * @return a predicate that is true when every one of them is
+     */
+    static IntPredicate chain(IntPredicate[] tests) {
+        return row -> {
+            for (IntPredicate test : tests) {
+                if (!test.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Binds conditions to a catalog.
+     *
+     * @param catalog    the catalog whose rows will be tested
+     * @param conditions the conditions
+     * @return the bound predicates, in the same order
+     */
+    private static IntPredicate[] bind(Catalog catalog, List<FilterCondition> conditions) {
+        IntPredicate[] tests = new IntPredicate[conditions.size()];
+        for (int i = 0; i < tests.length; i++) {
+            tests[i] = conditions.get(i).bind(catalog);
+        }
+        return tests;
+    }
+
+    /**
+     * Reads the bytes of the template class.
+     *
+     * @return the class file, or null if it is not available
+     */
+    private static byte[] readTemplate() {
+        try (InputStream in = FilterTemplate.class.getResourceAsStream("FilterTemplate.class")) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
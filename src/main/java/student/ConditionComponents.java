@@ -77,6 +77,23 @@ public class ConditionComponents {
         return operator;
     }
 
+    /**
+     * Get the operation of the condition. A single = is the same as ==.
+     *
+     * @return the operation of the condition
+     * @throws IllegalArgumentException if the operator is not a known operation
+     */
+    public Operations getOperation() {
+        if ("=".equals(operator)) {
+            return Operations.EQUALS;
+        }
+        try {
+            return Operations.fromOperator(operator);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid condition: " + operator);
+        }
+    }
+
     /**
      * Get the value of the condition.
      *
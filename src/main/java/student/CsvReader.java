@@ -0,0 +1,463 @@
+package student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Single pass, streaming CSV tokenizer that works directly on the raw bytes of the file.
+ *
+ * Rows are scanned in place inside a byte buffer, and only the start and end offsets of each
+ * field are recorded. Nothing is converted into a String until a caller asks for a specific
+ * field, so the only objects that outlive a row are the values the caller keeps.
+ *
+ * Fields may be wrapped in double quotes, in which case they can contain commas, line breaks
+ * and escaped quotes ({@code ""}).
+ */
+final class CsvReader {
+    /** Default size of the read buffer for streamed input. */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** Initial number of field slots, grown when a wider row shows up. */
+    private static final int INITIAL_FIELDS = 64;
+    /** Field separator. */
+    private static final byte COMMA = ',';
+    /** Quote character. */
+    private static final byte QUOTE = '"';
+    /** Line feed. */
+    private static final byte LF = '\n';
+    /** Carriage return. */
+    private static final byte CR = '\r';
+    /** Largest mantissa a double holds exactly (2^53). */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    /** Powers of ten that a double holds exactly. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Source to refill the buffer from, null if the buffer holds all of the input. */
+    private final InputStream in;
+    /** Buffer holding the bytes being scanned, positions are absolute indexes. */
+    private ByteBuffer buffer;
+    /** Position of the next unread byte in the buffer. */
+    private int pos;
+    /** Number of valid bytes in the buffer. */
+    private int limit;
+    /** True once the source has no more bytes to give. */
+    private boolean eof;
+    /** Bytes consumed by completed rows. */
+    private long bytesConsumed;
+    /** Time spent waiting on the input, in nanoseconds. */
+    private long readNanos;
+
+    /** Start offset of each field of the current row. */
+    private int[] starts = new int[INITIAL_FIELDS];
+    /** End offset (exclusive) of each field of the current row. */
+    private int[] ends = new int[INITIAL_FIELDS];
+    /** True if the field was quoted and contains escaped quotes. */
+    private boolean[] escaped = new boolean[INITIAL_FIELDS];
+    /** Number of fields in the current row. */
+    private int fieldCount;
+    /** True if the current row ran into the end of the input inside a quoted field. */
+    private boolean openQuote;
+
+    /** Scratch space used to decode fields out of direct buffers. */
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a reader that streams from the given input.
+     *
+     * @param in the input to read
+     */
+    CsvReader(InputStream in) {
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        this.limit = 0;
+        this.eof = false;
+    }
+
+    /**
+     * Creates a reader over a buffer that already holds all of its input, such as one chunk of a
+     * memory mapped file. Offsets are relative to the buffer's position.
+     *
+     * @param buffer the bytes to read
+     */
+    CsvReader(ByteBuffer buffer) {
+        this.in = null;
+        this.buffer = buffer.slice();
+        this.limit = this.buffer.limit();
+        this.eof = true;
+    }
+
+    /**
+     * Advances to the next row, recording every field.
+     *
+     * @return true if a row was read, false at the end of the input
+     * @throws IOException if the underlying input fails
+     */
+    boolean nextRow() throws IOException {
+        return nextRow(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Advances to the next row, recording at most the given number of fields. The rest of the
+     * row is skipped without recording field boundaries.
+     *
+     * @param maxFields how many leading fields of the row are needed
+     * @return true if a row was read, false at the end of the input
+     * @throws IOException if the underlying input fails
+     */
+    boolean nextRow(int maxFields) throws IOException {
+        while (true) {
+            if (pos >= limit && eof) {
+                return false;
+            }
+            int end = scanRow(pos, maxFields);
+            if (end >= 0) {
+                bytesConsumed += end - pos;
+                pos = end;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Get the number of fields in the current row.
+     *
+     * @return number of fields
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Checks if the current row ran into the end of the input inside a quoted field. For a chunk
+     * of a larger file, this means the chunk was cut at a line break inside the field.
+     *
+     * @return true if the row ended with its quote still open
+     */
+    boolean endedInQuote() {
+        return openQuote;
+    }
+
+    /**
+     * Get the number of bytes consumed by the rows read so far.
+     *
+     * @return bytes consumed
+     */
+    long bytesConsumed() {
+        return bytesConsumed;
+    }
+
+    /**
+     * Get the time spent waiting on the input so far.
+     *
+     * @return read time in nanoseconds
+     */
+    long readNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Decodes a field of the current row into a String.
+     *
+     * @param field index of the field
+     * @return the field value, with quotes removed
+     */
+    String string(int field) {
+        int start = starts[field];
+        int len = ends[field] - start;
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + start, len,
+                    StandardCharsets.UTF_8);
+        } else {
+            if (scratch.length < len) {
+                scratch = new byte[Math.max(len, scratch.length * 2)];
+            }
+            buffer.get(start, scratch, 0, len);
+            value = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+        return escaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Parses a field of the current row as an int, straight from the buffer.
+     *
+     * Accepts the same input as {@link Integer#parseInt(String)}: an optional sign followed by
+     * decimal digits.
+     *
+     * @param field index of the field
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    int parseInt(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i++) == '-';
+        }
+        if (i >= end) {
+            throw new NumberFormatException("For input string: \"" + string(field) + "\"");
+        }
+        // accumulate negatively so Integer.MIN_VALUE fits
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + string(field) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a field of the current row as a double, straight from the buffer.
+     *
+     * Plain decimals such as {@code 7.25} or {@code -0.5} are parsed without creating a String,
+     * and give exactly the result of {@link Double#parseDouble(String)}. Anything else (exponents,
+     * very long mantissas, NaN, surrounding spaces) falls back to Double.parseDouble.
+     *
+     * @param field index of the field
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a valid double
+     */
+    double parseDouble(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i++) == '-';
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    break;
+                }
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < end || digits == 0 || fraction >= POWERS_OF_TEN.length || escaped[field]) {
+            return Double.parseDouble(string(field));
+        }
+        // both values are exact, so a single division rounds correctly
+        double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Scans a full row starting at the given offset, recording its field boundaries.
+     *
+     * @param from      offset of the first byte of the row
+     * @param maxFields number of fields to record before skipping to the end of the row
+     * @return the offset just past the row terminator, or -1 if the row is not complete in the
+     *         buffer yet
+     */
+    private int scanRow(int from, int maxFields) {
+        fieldCount = 0;
+        openQuote = false;
+        int i = from;
+        while (true) {
+            if (fieldCount == starts.length) {
+                growFields();
+            }
+            boolean quoted = i < limit && buffer.get(i) == QUOTE;
+            int start;
+            int end;
+            boolean hasEscapes = false;
+            if (quoted) {
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!eof) {
+                            return -1;
+                        }
+                        openQuote = true;
+                        break; // unterminated quote, the field runs to the end of the input
+                    }
+                    if (buffer.get(i) == QUOTE) {
+                        if (i + 1 >= limit && !eof) {
+                            return -1;
+                        }
+                        if (i + 1 < limit && buffer.get(i + 1) == QUOTE) {
+                            hasEscapes = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                end = i;
+                if (i < limit) {
+                    i++;
+                }
+                // anything between the closing quote and the delimiter is kept out of the value
+                while (i < limit && !isDelimiter(buffer.get(i))) {
+                    i++;
+                }
+            } else {
+                start = i;
+                while (i < limit && !isDelimiter(buffer.get(i))) {
+                    i++;
+                }
+                end = i;
+            }
+            if (i >= limit && !eof) {
+                return -1;
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            escaped[fieldCount] = hasEscapes;
+            fieldCount++;
+            if (i >= limit) {
+                return i;
+            }
+            byte b = buffer.get(i++);
+            if (b == COMMA) {
+                if (fieldCount == maxFields) {
+                    return skipRow(i);
+                }
+                continue;
+            }
+            return endOfLine(b, i);
+        }
+    }
+
+    /**
+     * Skips the remaining fields of a row without recording them.
+     *
+     * @param from offset of the start of the next field
+     * @return the offset just past the row terminator, or -1 if the row is not complete in the
+     *         buffer yet
+     */
+    private int skipRow(int from) {
+        int i = from;
+        boolean fieldStart = true;
+        while (i < limit) {
+            byte b = buffer.get(i);
+            if (fieldStart && b == QUOTE) {
+                i = skipQuoted(i + 1);
+                if (i < 0) {
+                    return -1;
+                }
+                fieldStart = false;
+                continue;
+            }
+            i++;
+            fieldStart = b == COMMA;
+            if (b == LF || b == CR) {
+                return endOfLine(b, i);
+            }
+        }
+        return eof ? i : -1;
+    }
+
+    /**
+     * Skips over the contents of a quoted field.
+     *
+     * @param from offset just past the opening quote
+     * @return the offset just past the closing quote, or -1 if the field is not complete in the
+     *         buffer yet
+     */
+    private int skipQuoted(int from) {
+        int i = from;
+        while (i < limit) {
+            if (buffer.get(i++) == QUOTE) {
+                if (i >= limit && !eof) {
+                    return -1;
+                }
+                if (i >= limit || buffer.get(i) != QUOTE) {
+                    return i;
+                }
+                i++;
+            }
+        }
+        openQuote = eof;
+        return eof ? i : -1;
+    }
+
+    /**
+     * Consumes the line feed that may follow a carriage return.
+     *
+     * @param terminator the line break byte that was just read
+     * @param next       offset just past that byte
+     * @return the offset of the next row, or -1 if more input is needed to decide
+     */
+    private int endOfLine(byte terminator, int next) {
+        if (terminator != CR) {
+            return next;
+        }
+        if (next >= limit) {
+            return eof ? next : -1;
+        }
+        return buffer.get(next) == LF ? next + 1 : next;
+    }
+
+    /**
+     * Checks if a byte ends an unquoted field.
+     *
+     * @param b the byte to check
+     * @return true for a comma or a line break
+     */
+    private static boolean isDelimiter(byte b) {
+        return b == COMMA || b == LF || b == CR;
+    }
+
+    /**
+     * Moves the unread part of the buffer to the front and reads more input after it. The buffer
+     * is doubled if a single row does not fit into it.
+     *
+     * @throws IOException if the underlying input fails
+     */
+    private void fill() throws IOException {
+        if (in == null) {
+            eof = true;
+            return;
+        }
+        int remaining = limit - pos;
+        byte[] array = buffer.array();
+        if (remaining == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+            buffer = ByteBuffer.wrap(array);
+        } else if (pos > 0) {
+            System.arraycopy(array, pos, array, 0, remaining);
+        }
+        pos = 0;
+        limit = remaining;
+        long start = System.nanoTime();
+        int read = in.read(array, limit, array.length - limit);
+        readNanos += System.nanoTime() - start;
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /** Doubles the number of field slots. */
+    private void growFields() {
+        int size = starts.length * 2;
+        starts = Arrays.copyOf(starts, size);
+        ends = Arrays.copyOf(ends, size);
+        escaped = Arrays.copyOf(escaped, size);
+    }
+}
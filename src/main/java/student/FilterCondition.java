@@ -1,5 +1,7 @@
 package student;
 
+import java.util.function.IntPredicate;
+
 public interface FilterCondition {
     /**
      * Evaluates the condition for a specific game.
@@ -8,4 +10,106 @@ public interface FilterCondition {
      * @return true if the condition is satisfied, false otherwise
      */
     boolean check(BoardGame game);
+
+    /**
+     * Evaluates the condition for a row of a catalog. Conditions that can use the catalog's
+     * precomputed data override this; by default the row's game is checked.
+     *
+     * @param catalog The catalog holding the game
+     * @param row     The row of the game in the catalog
+     * @return true if the condition is satisfied, false otherwise
+     */
+    default boolean test(Catalog catalog, int row) {
+        return check(catalog.game(row));
+    }
+
+    /**
+     * Binds the condition to a catalog, giving a predicate over its rows. The planner binds each
+     * condition once per query and then calls the predicate for every row, so conditions that
+     * know the catalog layout override this to look up their columns up front. By default the
+     * predicate calls {@link #test(Catalog, int)}.
+     *
+     * @param catalog The catalog whose rows will be tested
+     * @return A predicate that is true for the rows meeting the condition
+     */
+    default IntPredicate bind(Catalog catalog) {
+        return row -> test(catalog, row);
+    }
+
+    /**
+     * Binds the condition to a catalog for batch evaluation. By default the bound predicate from
+     * {@link #bind(Catalog)} is called for each row of the block.
+     *
+     * @param catalog The catalog whose rows will be tested
+     * @return A filter that narrows selection vectors of rows
+     */
+    default BatchFilter batch(Catalog catalog) {
+        IntPredicate test = bind(catalog);
+        return (rows, count) -> {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (test.test(row)) {
+                    rows[kept++] = row;
+                }
+            }
+            return kept;
+        };
+    }
+
+    /**
+     * Get the normalized text of the condition, the same for every way of writing it, such as
+     * "minplayers>4" for "minPlayers > 4". Compiled filters are cached by this text. Conditions
+     * without one return null, which is the default, and are never cached.
+     *
+     * @return The normalized text, or null
+     */
+    default String normalized() {
+        return null;
+    }
+
+    /**
+     * Finds the rows that match the condition as a range of one of the catalog's sort indexes.
+     * Every row in the range matches and no row outside it does. Conditions that cannot be
+     * answered by a single range return null, which is the default.
+     *
+     * @param catalog The catalog to search
+     * @return The matching range, or null if the condition must be checked row by row
+     */
+    default SortIndex.Range range(Catalog catalog) {
+        return null;
+    }
+
+    /**
+     * Finds the rows that match the condition using the catalog's sort indexes. By default this
+     * is the condition's {@link #range(Catalog)}, if it has one.
+     *
+     * @param catalog The catalog to search
+     * @return The matching rows, or null if the condition must be checked row by row
+     */
+    default RowBitmap bitmap(Catalog catalog) {
+        SortIndex.Range range = range(catalog);
+        return range == null ? null : range.bitmap();
+    }
+
+    /**
+     * Estimates the fraction of the catalog's rows that meet the condition. By default every row
+     * is assumed to, so conditions without an estimate are checked last.
+     *
+     * @param catalog The catalog to estimate for
+     * @return The estimated fraction, between 0 and 1
+     */
+    default double selectivity(Catalog catalog) {
+        return 1.0;
+    }
+
+    /**
+     * Get the relative cost of checking one row, where comparing one column value costs 1. By
+     * default a game has to be created for the row, which costs about as much as 20 comparisons.
+     *
+     * @return The relative cost of {@link #test(Catalog, int)}
+     */
+    default double cost() {
+        return 20.0;
+    }
 }
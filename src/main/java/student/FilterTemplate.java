@@ -0,0 +1,39 @@
+package student;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.function.IntPredicate;
+
+/**
+ * Template of a compiled filter.
+ *
+ * This class is never used directly. {@link CompiledFilter} defines a new hidden class from its
+ * bytes for every filter it compiles, handing over the filter's method handle as class data. In
+ * each hidden class the handle is a static final constant, so the JIT compiles the whole tree of
+ * conditions into the {@link #test(int)} method of that class.
+ */
+final class FilterTemplate implements IntPredicate {
+    /** The compiled filter, a method handle of type (int)boolean. */
+    private static final MethodHandle FILTER;
+
+    static {
+        try {
+            FILTER = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME,
+                    MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public boolean test(int row) {
+        try {
+            return (boolean) FILTER.invokeExact(row);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
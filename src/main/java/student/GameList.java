@@ -10,8 +10,10 @@ import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class GameList implements IGameList {
 
@@ -96,29 +98,38 @@ public class GameList implements IGameList {
      */
     @Override
     public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
-        List<BoardGame> filteredList = filtered.toList();
-        if (filteredList.isEmpty()) {
+        // Streams that know their size are read lazily, up to the last game needed
+        Spliterator<BoardGame> source = filtered.spliterator();
+        long size = source.getExactSizeIfKnown();
+        if (size < 0) {
+            List<BoardGame> filteredList = StreamSupport.stream(source, false).toList();
+            size = filteredList.size();
+            source = filteredList.spliterator();
+        }
+        if (size == 0) {
             throw new IllegalArgumentException("Cannot add from empty filtered list");
         }
+        Stream<BoardGame> sourceGames = StreamSupport.stream(source, false);
+        int max = (int) Math.min(size, Integer.MAX_VALUE);
 
         // Handle 'all' special case
         if (ADD_ALL.equalsIgnoreCase(str)) {
-            filteredList.forEach(this::safeAddGame);
+            sourceGames.forEach(this::safeAddGame);
             return;
         }
 
         // Process range selection
         if (str.contains("-")) {
-            handleRangeAddition(str, filteredList);
+            handleRangeAddition(str, sourceGames, max);
             return;
         }
 
         // Try numeric index or name match
         try {
             int index = Integer.parseInt(str) - 1; // Convert to 0-based index
-            addByIndex(index, filteredList);
+            addByIndex(index, sourceGames, max);
         } catch (NumberFormatException e) {
-            addByName(str, filteredList);
+            addByName(str, sourceGames);
         }
     }
 
@@ -201,14 +212,15 @@ public class GameList implements IGameList {
     /**
      * Processes range addition pattern ("X-Y" format).
      *
-     * @param range      The range string (e.g., "2-5")
-     * @param sourceList Filtered list to select from
+     * @param range       The range string (e.g., "2-5")
+     * @param sourceGames Filtered games to select from
+     * @param size        Number of filtered games
      * @throws IllegalArgumentException If:
      *                                  - Invalid range format
      *                                  - Non-numeric values
      *                                  - Invalid range boundaries
      */
-    private void handleRangeAddition(String range, List<BoardGame> sourceList) {
+    private void handleRangeAddition(String range, Stream<BoardGame> sourceGames, int size) {
         String[] parts = range.split("-");
         if (parts.length != 2) {
             throw new IllegalArgumentException("Invalid range format: " + range);
@@ -217,11 +229,9 @@ public class GameList implements IGameList {
         try {
             int start = Integer.parseInt(parts[0].trim()) - 1;
             int end = Integer.parseInt(parts[1].trim()) - 1;
-            validateRange(start, end, sourceList.size());
+            validateRange(start, end, size);
 
-            for (int i = start; i <= end; i++) {
-                safeAddGame(sourceList.get(i));
-            }
+            sourceGames.skip(start).limit(end - start + 1).forEach(this::safeAddGame);
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Non-numeric range values: " + range);
         }
@@ -230,23 +240,24 @@ public class GameList implements IGameList {
     /**
      * Adds a single game from filtered list by index.
      *
-     * @param index      0-based index in filtered list
-     * @param sourceList Pre-filtered game list
+     * @param index       0-based index in filtered list
+     * @param sourceGames Pre-filtered games
+     * @param size        Number of filtered games
      */
-    private void addByIndex(int index, List<BoardGame> sourceList) {
-        validateIndex(index, sourceList.size());
-        safeAddGame(sourceList.get(index));
+    private void addByIndex(int index, Stream<BoardGame> sourceGames, int size) {
+        validateIndex(index, size);
+        sourceGames.skip(index).findFirst().ifPresent(this::safeAddGame);
     }
 
     /**
      * Adds games by case-insensitive name matching.
      *
-     * @param name       Target game name (case-insensitive)
-     * @param sourceList Filtered list to search
+     * @param name        Target game name (case-insensitive)
+     * @param sourceGames Filtered games to search
      * @throws IllegalArgumentException If no matching game found
      */
-    private void addByName(String name, List<BoardGame> sourceList) {
-        boolean found = sourceList.stream()
+    private void addByName(String name, Stream<BoardGame> sourceGames) {
+        boolean found = sourceGames
                 .anyMatch(game -> {
                     if (game.getName().equalsIgnoreCase(name)) {
                         safeAddGame(game);
@@ -0,0 +1,169 @@
+package student;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Spliterator over a query result, creating each game only when it is reached.
+ *
+ * The result is a range of positions in a list of catalog rows that is sorted on first use, so
+ * a stream that never reaches an element, such as one that is only counted, neither sorts the
+ * rows nor creates a game. The size is known up front, and the elements come in the order of
+ * the query's sort field, which the spliterator reports as SIZED and SORTED. Splitting cuts the
+ * range of positions in half; the halves share the sorted rows.
+ */
+final class GameSpliterator implements Spliterator<BoardGame> {
+    /** The catalog the rows belong to. */
+    private final Catalog catalog;
+    /** The sorted rows, shared with the spliterators split from this one. */
+    private final SortedRows rows;
+    /** Order of the games. */
+    private final Comparator<BoardGame> order;
+    /** Next position to visit. */
+    private int index;
+    /** One past the last position to visit. */
+    private final int fence;
+
+    /**
+     * Creates a spliterator over positions [from, to) of a sorted result.
+     *
+     * @param catalog   the catalog the rows belong to
+     * @param sort      sorts the rows of the result, called at most once
+     * @param sortOn    the field the rows are sorted on
+     * @param ascending the sorting direction
+     * @param from      first position to visit
+     * @param to        one past the last position to visit
+     */
+    GameSpliterator(Catalog catalog, Supplier<int[]> sort, GameData sortOn, boolean ascending,
+            int from, int to) {
+        this(catalog, new SortedRows(sort), comparator(sortOn, ascending), from, to);
+    }
+
+    /**
+     * Creates a spliterator over positions [from, to) of shared sorted rows.
+     *
+     * @param catalog the catalog the rows belong to
+     * @param rows    the sorted rows
+     * @param order   order of the games
+     * @param from    first position to visit
+     * @param to      one past the last position to visit
+     */
+    private GameSpliterator(Catalog catalog, SortedRows rows, Comparator<BoardGame> order,
+            int from, int to) {
+        this.catalog = catalog;
+        this.rows = rows;
+        this.order = order;
+        this.index = from;
+        this.fence = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super BoardGame> action) {
+        if (index >= fence) {
+            return false;
+        }
+        action.accept(catalog.game(rows.get()[index++]));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super BoardGame> action) {
+        if (index >= fence) {
+            return;
+        }
+        int[] sorted = rows.get();
+        int end = fence;
+        for (int i = index; i < end; i++) {
+            action.accept(catalog.game(sorted[i]));
+        }
+        index = end;
+    }
+
+    @Override
+    public Spliterator<BoardGame> trySplit() {
+        int mid = (index + fence) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        GameSpliterator prefix = new GameSpliterator(catalog, rows, order, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public Comparator<? super BoardGame> getComparator() {
+        return order;
+    }
+
+    /**
+     * Get the order that games are sorted in by a sort index.
+     *
+     * @param sortOn    the field
+     * @param ascending the sorting direction
+     * @return a comparator of games on the field
+     * @throws IllegalArgumentException if the field cannot be sorted on
+     */
+    static Comparator<BoardGame> comparator(GameData sortOn, boolean ascending) {
+        Comparator<BoardGame> order = switch (sortOn) {
+            case NAME -> Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
+            case RATING -> Comparator.comparingDouble(BoardGame::getRating);
+            case DIFFICULTY -> Comparator.comparingDouble(BoardGame::getDifficulty);
+            case RANK -> Comparator.comparingInt(BoardGame::getRank);
+            case MIN_PLAYERS -> Comparator.comparingInt(BoardGame::getMinPlayers);
+            case MAX_PLAYERS -> Comparator.comparingInt(BoardGame::getMaxPlayers);
+            case MIN_TIME -> Comparator.comparingInt(BoardGame::getMinPlayTime);
+            case MAX_TIME -> Comparator.comparingInt(BoardGame::getMaxPlayTime);
+            case YEAR -> Comparator.comparingInt(BoardGame::getYearPublished);
+            default -> throw new IllegalArgumentException("Invalid sort field: " + sortOn);
+        };
+        return ascending ? order : order.reversed();
+    }
+
+    /** Rows of a result, sorted the first time they are needed, by whichever thread is first. */
+    private static final class SortedRows {
+        /** Sorts the rows. */
+        private final Supplier<int[]> sort;
+        /** The sorted rows, null until sorted. */
+        private volatile int[] sorted;
+
+        /**
+         * Creates the rows.
+         *
+         * @param sort sorts the rows
+         */
+        SortedRows(Supplier<int[]> sort) {
+            this.sort = sort;
+        }
+
+        /**
+         * Get the sorted rows, sorting them on first use.
+         *
+         * @return the sorted rows
+         */
+        int[] get() {
+            int[] rows = sorted;
+            if (rows == null) {
+                synchronized (this) {
+                    rows = sorted;
+                    if (rows == null) {
+                        rows = sort.get();
+                        sorted = rows;
+                    }
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -1,28 +1,46 @@
 package student;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Loads the games from the csv file into a set of BoardGame objects.
  * This file is stored in the resources folder, and while it is
  * passed in - often tends to be more fixed.
  * 
- * It assumes there are no comma's in the data (and does not handle errors if
- * there are extra commas like in the name).
+ * The file is streamed through a {@link CsvReader}, so games are built in a single pass over the
+ * bytes without holding the raw lines in memory. Quoted fields (such as names with commas in them)
+ * are supported, and so are gzip compressed files ending in {@code .gz}.
  * 
  */
 public final class GamesLoader {
-    /** Standard csv delim. */
-    private static final String DELIMITER = ",";
+    /** Smallest chunk worth handing to its own task when loading files in parallel. */
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    /** Largest chunk to map at once, keeps every mapping well under the 2GB limit. */
+    private static final long MAX_CHUNK_SIZE = 1L << 28;
+    /** How many chunks to aim for per worker thread, to even out uneven chunks. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Extension of gzip compressed collections. */
+    private static final String GZIP_EXTENSION = ".gz";
 
     /** private constructor to prevent instantiation. */
     private GamesLoader() {
@@ -35,86 +53,478 @@ public final class GamesLoader {
      * @return a set of BoardGame objects
      */
     public static Set<BoardGame> loadGamesFile(String filename) {
+        // this is so we can store the files in the resources folder
+        try (InputStream is = GamesLoader.class.getResourceAsStream(filename)) {
+            if (is == null) {
+                System.err.println("Error reading file: " + filename + " not found");
+                return new HashSet<>();
+            }
+            if (filename.endsWith(GZIP_EXTENSION)) {
+                try (InputStream gzip = new GzipPipeInputStream(is)) {
+                    return load(gzip, filename).getGames();
+                }
+            }
+            return load(is, filename).getGames();
+        } catch (Exception e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new HashSet<>();
+        }
+    }
 
-        Set<BoardGame> games = new HashSet<>();
+    /**
+     * Loads the games from an open csv stream. The stream is read to the end, but not closed.
+     * 
+     * @param in the csv input, starting with the header row
+     * @return a set of BoardGame objects
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the header is missing one of the GameData columns
+     */
+    public static Set<BoardGame> loadGames(InputStream in) throws IOException {
+        return load(in, "stream").getGames();
+    }
 
-        List<String> lines;
+    /**
+     * Loads the games from an open csv stream, along with a report on the load. The report is
+     * also published as a {@code student.CatalogLoad} JFR event. The stream is read to the end,
+     * but not closed.
+     * 
+     * @param in     the csv input, starting with the header row
+     * @param source name of the input, for the report event
+     * @return the games and the load report
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the header is missing one of the GameData columns
+     */
+    public static LoadResult load(InputStream in, String source) throws IOException {
+        LoadReport report = new LoadReport();
+        return build(readStream(in, report), report, source);
+    }
+
+    /**
+     * Loads the games from a csv file on the filesystem.
+     * 
+     * The file is memory mapped and split into chunks on line boundaries, and the chunks are
+     * parsed in parallel on the common ForkJoin pool. A chunk cut at a line break inside a quoted
+     * field is parsed again across the cut, so the same games are read as when streaming.
+     * 
+     * Files ending in {@code .gz} are streamed instead: they are decompressed on a separate
+     * thread that feeds the parser, so decompression and parsing overlap.
+     * 
+     * @param path the csv file to load
+     * @return a set of BoardGame objects
+     */
+    public static Set<BoardGame> loadGamesFile(Path path) {
         try {
-            // this is so we can store the files in the resources folder
-            InputStream is = GamesLoader.class.getResourceAsStream(filename);
-            InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(isr);
-            lines = reader.lines().collect(Collectors.toList());
+            return load(path).getGames();
         } catch (Exception e) {
             System.err.println("Error reading file: " + e.getMessage());
-            return games;
+            return new HashSet<>();
         }
-        if (lines == null || lines.isEmpty()) {
-            return games;
+    }
+
+    /**
+     * Loads the games from a csv file on the filesystem, along with a report on the load. The
+     * report is also published as a {@code student.CatalogLoad} JFR event.
+     * 
+     * @param path the csv file to load
+     * @return the games and the load report
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the header is missing one of the GameData columns
+     * @see #loadGamesFile(Path)
+     */
+    public static LoadResult load(Path path) throws IOException {
+        LoadReport report = new LoadReport();
+        return build(readGamesFile(path, report), report, path.toString());
+    }
+
+    /**
+     * Loads several csv files concurrently and merges them into one collection by game id
+     * ({@code objectid}). When more than one file lists an id, the policy picks the file whose
+     * games with that id are kept, with files taking part in the order given. Games sharing an
+     * id within one file are kept together, as {@link #loadGamesFile(Path)} keeps them. Files
+     * that cannot be read are reported and skipped. Each file gets its own load report, published
+     * as a {@code student.CatalogLoad} JFR event named after the file.
+     * 
+     * @param paths  the csv files to load
+     * @param policy how to pick between files listing the same id
+     * @return the merged set of BoardGame objects
+     */
+    public static Set<BoardGame> loadGamesFiles(List<Path> paths, MergePolicy policy) {
+        List<Set<BoardGame>> sources = paths.parallelStream().map(path -> {
+            try {
+                return load(path).getGames();
+            } catch (Exception e) {
+                System.err.println("Error reading file: " + e.getMessage());
+                return Set.<BoardGame>of();
+            }
+        }).collect(Collectors.toList());
+        return merge(sources, policy);
+    }
+
+    /**
+     * Loads several csv streams concurrently and merges them into one collection by game id
+     * ({@code objectid}). When more than one stream lists an id, the policy picks the stream
+     * whose games with that id are kept, with streams taking part in the order given. Games
+     * sharing an id within one stream are kept together. Each stream gets its own load report,
+     * published as a {@code student.CatalogLoad} JFR event named {@code stream <index>}. The
+     * streams are read to the end, but not closed.
+     * 
+     * @param sources the csv inputs, each starting with its header row
+     * @param policy  how to pick between streams listing the same id
+     * @return the merged set of BoardGame objects
+     * @throws IOException if one of the streams cannot be read
+     * @throws IllegalArgumentException if a header is missing one of the GameData columns
+     */
+    public static Set<BoardGame> loadGames(List<InputStream> sources, MergePolicy policy)
+            throws IOException {
+        try {
+            return merge(IntStream.range(0, sources.size()).parallel().mapToObj(i -> {
+                try {
+                    return load(sources.get(i), "stream " + i).getGames();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList()), policy);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Merges the games of several sources by id.
+     * 
+     * Each source is first grouped by id, so games sharing an id within one source (distinct
+     * games, as games are told apart by name and id) stay together. The policy is only asked
+     * when a different source also has the id: it is given the game each group would keep on
+     * its own, and the group whose game it picks replaces the other one whole.
+     * 
+     * @param sources the games of each source, in merge order
+     * @param policy  how to pick between sources listing the same id
+     * @return the merged set
+     */
+    private static Set<BoardGame> merge(List<? extends Collection<BoardGame>> sources,
+            MergePolicy policy) {
+        int rows = sources.stream().mapToInt(Collection::size).sum();
+        Map<Integer, List<BoardGame>> byId = new HashMap<>(rows * 4 / 3 + 1);
+        for (Collection<BoardGame> source : sources) {
+            Map<Integer, List<BoardGame>> groups = new HashMap<>(source.size() * 4 / 3 + 1);
+            for (BoardGame game : source) {
+                groups.computeIfAbsent(game.getId(), id -> new ArrayList<>(1)).add(game);
+            }
+            for (Map.Entry<Integer, List<BoardGame>> entry : groups.entrySet()) {
+                byId.merge(entry.getKey(), entry.getValue(), (current, incoming) -> {
+                    BoardGame kept = pick(current, policy);
+                    return policy.resolve(kept, pick(incoming, policy)) == kept ? current
+                            : incoming;
+                });
+            }
+        }
+        Set<BoardGame> games = new HashSet<>(rows * 4 / 3 + 1);
+        for (List<BoardGame> group : byId.values()) {
+            games.addAll(group);
+        }
+        return games;
+    }
+
+    /**
+     * Get the game a policy keeps from a group of games with the same id from one source.
+     * 
+     * @param group  the games, in the order read
+     * @param policy the merge policy
+     * @return the game the policy keeps
+     */
+    private static BoardGame pick(List<BoardGame> group, MergePolicy policy) {
+        BoardGame kept = group.get(0);
+        for (int i = 1; i < group.size(); i++) {
+            kept = policy.resolve(kept, group.get(i));
         }
+        return kept;
+    }
 
-        Map<GameData, Integer> columnMap = processHeader(lines.remove(0));
+    /**
+     * Builds the final set of games, finishing and publishing the report.
+     * 
+     * @param games  every game that was read
+     * @param report the report so far
+     * @param source name of the input, for the report event
+     * @return the games and the load report
+     */
+    private static LoadResult build(List<BoardGame> games, LoadReport report, String source) {
+        long start = System.nanoTime();
+        Set<BoardGame> set = new HashSet<>(games);
+        report.duplicates(games.size() - set.size());
+        report.addBuildTime(System.nanoTime() - start);
+        report.publish(source);
+        return new LoadResult(set, report);
+    }
 
-        games = lines.stream().map(line -> toBoardGame(line, columnMap))
-                .filter(game -> game != null).collect(Collectors.toSet());
+    /**
+     * Reads the games of a csv file on the filesystem, in parallel chunks for plain files and
+     * through a decompressing pipeline for gzip files.
+     * 
+     * @param path   the csv file to load
+     * @param report where to count rows, bytes and time
+     * @return every game that could be read, in no particular order
+     * @throws IOException if the file cannot be read
+     * @see #loadGamesFile(Path)
+     */
+    private static List<BoardGame> readGamesFile(Path path, LoadReport report)
+            throws IOException {
+        if (path.getFileName().toString().endsWith(GZIP_EXTENSION)) {
+            try (InputStream in = new GzipPipeInputStream(Files.newInputStream(path))) {
+                return readStream(in, report);
+            }
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CsvReader header = new CsvReader(Channels.newInputStream(channel.position(0)));
+            if (!header.nextRow()) {
+                return new ArrayList<>();
+            }
+            RowDecoder decoder = RowDecoder.fromHeader(header);
+            report.addBytes(header.bytesConsumed());
+            long[] bounds = chunkBounds(channel, header.bytesConsumed(),
+                    ForkJoinPool.commonPool().getParallelism());
+            long parseStart = System.nanoTime();
+            report.addReadTime(parseStart - start);
 
+            ChunkTask task = new ChunkTask(channel, bounds, 0, bounds.length - 1, decoder);
+            // already on a pool thread when several files are loaded at once
+            List<Chunk> chunks = ForkJoinTask.inForkJoinPool() ? task.invoke()
+                    : ForkJoinPool.commonPool().invoke(task);
+            List<BoardGame> games = stitch(channel, bounds, chunks, decoder, report);
+            report.addParseTime(System.nanoTime() - parseStart);
+            return games;
+        }
+    }
+
+    /**
+     * Joins the parsed chunks of a file, in file order.
+     * 
+     * A chunk is cut at the first line feed after its target size, which may be a line break
+     * inside a quoted field rather than the end of a row. Such a chunk ends with its quote still
+     * open, and the chunk after it starts in the middle of the field. The chunk is then parsed
+     * again together with the next one, until the open field is closed, and the results of the
+     * chunks it swallowed are dropped. Since every chunk is only kept when the one before it
+     * ended on a row boundary, the rows read match those of a streamed load of the same file.
+     * 
+     * @param channel the open file
+     * @param bounds  the chunk boundaries
+     * @param chunks  the chunks as parsed in parallel
+     * @param decoder the decoder compiled from the header
+     * @param report  where to count rows and bytes of the chunks kept
+     * @return every game that could be read, in file order
+     * @throws IOException if the file cannot be read
+     */
+    private static List<BoardGame> stitch(FileChannel channel, long[] bounds, List<Chunk> chunks,
+            RowDecoder decoder, LoadReport report) throws IOException {
+        List<BoardGame> games = new ArrayList<>();
+        int i = 0;
+        while (i < chunks.size()) {
+            Chunk chunk = chunks.get(i);
+            int end = i + 1;
+            while (chunk.openQuote && end < chunks.size()) {
+                end++;
+                chunk = parseChunk(channel, bounds[i], bounds[end], decoder);
+            }
+            games.addAll(chunk.games);
+            report.addCounts(chunk.counts);
+            i = end;
+        }
         return games;
+    }
 
+    /**
+     * Parses the rows of a range of a file.
+     * 
+     * @param channel the open file
+     * @param start   offset of the first row of the range
+     * @param end     offset just past the range
+     * @param decoder the decoder compiled from the header
+     * @return the games, counts and end state of the range
+     * @throws IOException if the file cannot be read
+     */
+    private static Chunk parseChunk(FileChannel channel, long start, long end, RowDecoder decoder)
+            throws IOException {
+        Chunk chunk = new Chunk();
+        if (end <= start) {
+            return chunk;
+        }
+        CsvReader reader = new CsvReader(channel.map(FileChannel.MapMode.READ_ONLY, start,
+                end - start));
+        readRows(reader, decoder, chunk.games, chunk.counts);
+        chunk.counts.addBytes(reader.bytesConsumed());
+        chunk.openQuote = reader.endedInQuote();
+        return chunk;
     }
 
     /**
-     * Converts a line from the csv file into a BoardGame object.
+     * Reads the games of a csv stream.
      * 
-     * @param line      the line to convert
-     * @param columnMap the map of columns to index
-     * @return a BoardGame object
+     * @param in     the csv input, starting with the header row
+     * @param report where to count rows, bytes and time
+     * @return every game that could be read, in file order
+     * @throws IOException if the stream cannot be read
      */
-    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap) {
-        String[] columns = line.split(DELIMITER);
-        if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
-            return null;
+    private static List<BoardGame> readStream(InputStream in, LoadReport report)
+            throws IOException {
+        long start = System.nanoTime();
+        CsvReader reader = new CsvReader(in);
+        List<BoardGame> games = new ArrayList<>();
+        if (reader.nextRow()) {
+            readRows(reader, RowDecoder.fromHeader(reader), games, report);
         }
+        report.addBytes(reader.bytesConsumed());
+        report.addReadTime(reader.readNanos());
+        report.addParseTime(System.nanoTime() - start - reader.readNanos());
+        return games;
+    }
 
-        try {
-            BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
-                    Integer.parseInt(columns[columnMap.get(GameData.ID)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_TIME)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_TIME)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.DIFFICULTY)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.RANK)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.RATING)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.YEAR)]));
-            return game;
-        } catch (NumberFormatException e) {
-            // skip if there is an issue
-            return null;
+    /**
+     * Reads every remaining row of the reader into the given collection, skipping rows that
+     * cannot be converted.
+     * 
+     * @param reader  the reader positioned just after the header
+     * @param decoder the decoder compiled from the header
+     * @param games   where to put the games
+     * @param report  where to count accepted and skipped rows
+     * @throws IOException if the input cannot be read
+     */
+    private static void readRows(CsvReader reader, RowDecoder decoder,
+            Collection<BoardGame> games, LoadReport report) throws IOException {
+        int fields = decoder.fieldsNeeded();
+        while (reader.nextRow(fields)) {
+            BoardGame game = decoder.decode(reader, report);
+            if (game != null) {
+                games.add(game);
+            }
         }
     }
 
     /**
-     * Processes the header line to determine the column mapping.
+     * Splits the data part of a file into chunks that each start at the beginning of a line.
      * 
-     * It is common to do this for csv files as the columns can be in any order.
-     * This makes it order independent by taking a moment to link the columns
-     * with their actual index in the file.
+     * @param channel the open file
+     * @param start   offset of the first data row (just past the header)
+     * @param threads number of worker threads that will parse the chunks
+     * @return the chunk boundaries, chunk i covers [bounds[i], bounds[i + 1])
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] chunkBounds(FileChannel channel, long start, int threads)
+            throws IOException {
+        long size = channel.size();
+        long target = (size - start) / Math.max(1, threads * CHUNKS_PER_THREAD);
+        target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, target));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        ByteBuffer probe = ByteBuffer.allocate(8 * 1024);
+        long next = start + target;
+        while (next < size) {
+            long lineStart = nextLineStart(channel, next, probe);
+            if (lineStart >= size) {
+                break;
+            }
+            bounds.add(lineStart);
+            next = lineStart + target;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Finds the offset just past the first line feed at or after the given offset.
      * 
-     * @param header the header line
-     * @return a map of column to index
+     * @param channel the open file
+     * @param from    offset to start looking from
+     * @param probe   scratch buffer for reading
+     * @return offset of the start of the next line, or the file size if there is none
+     * @throws IOException if the file cannot be read
      */
-    private static Map<GameData, Integer> processHeader(String header) {
-        Map<GameData, Integer> columnMap = new HashMap<>();
-        String[] columns = header.split(DELIMITER);
-        for (int i = 0; i < columns.length; i++) {
-            try {
-                GameData col = GameData.fromColumnName(columns[i]);
-                columnMap.put(col, i);
-            } catch (IllegalArgumentException e) {
-                // System.out.println("Ignoring column: " + columns[i]);
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer probe)
+            throws IOException {
+        long offset = from;
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return offset + i + 1;
+                }
             }
+            offset += read;
         }
-        return columnMap;
     }
 
+    /**
+     * The rows parsed from one chunk of a file.
+     */
+    private static final class Chunk {
+        /** The games read, in file order. */
+        private final List<BoardGame> games = new ArrayList<>();
+        /** Counts of the rows and bytes read. */
+        private final LoadReport counts = new LoadReport();
+        /** True if the chunk ended inside a quoted field. */
+        private boolean openQuote;
+    }
+
+    /**
+     * Parses a range of file chunks, splitting the range in half until a single chunk is left.
+     */
+    private static final class ChunkTask extends RecursiveTask<List<Chunk>> {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The open file. */
+        private final FileChannel channel;
+        /** Chunk boundaries for the whole file. */
+        private final long[] bounds;
+        /** First chunk of this task. */
+        private final int from;
+        /** One past the last chunk of this task. */
+        private final int to;
+        /** The decoder compiled from the header. */
+        private final RowDecoder decoder;
+
+        /**
+         * Creates a task for the chunks [from, to).
+         * 
+         * @param channel the open file
+         * @param bounds  chunk boundaries for the whole file
+         * @param from    first chunk
+         * @param to      one past the last chunk
+         * @param decoder the decoder compiled from the header
+         */
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to, RowDecoder decoder) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.decoder = decoder;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ChunkTask right = new ChunkTask(channel, bounds, mid, to, decoder);
+                right.fork();
+                List<Chunk> chunks = new ChunkTask(channel, bounds, from, mid, decoder)
+                        .compute();
+                chunks.addAll(right.join());
+                return chunks;
+            }
+            List<Chunk> chunks = new ArrayList<>();
+            if (to == from) {
+                return chunks;
+            }
+            try {
+                chunks.add(parseChunk(channel, bounds[from], bounds[to], decoder));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read chunk at " + bounds[from], e);
+            }
+            return chunks;
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Input stream that decompresses gzip data on its own thread.
+ *
+ * A background thread inflates the compressed input into blocks and hands them over through a
+ * bounded queue, so decompression runs at the same time as whatever consumes this stream (such
+ * as the csv parser), and at most a few blocks are held in memory at once.
+ */
+final class GzipPipeInputStream extends InputStream {
+    /** Size of each decompressed block. */
+    private static final int BLOCK_SIZE = 64 * 1024;
+    /** Number of blocks the decompressor may run ahead of the reader. */
+    private static final int QUEUE_BLOCKS = 8;
+    /** Marks the end of the data in the queue. */
+    private static final Block END = new Block(new byte[0], 0);
+
+    /** Blocks handed over from the decompressing thread. */
+    private final BlockingQueue<Block> queue = new ArrayBlockingQueue<>(QUEUE_BLOCKS);
+    /** The decompressing thread. */
+    private final Thread inflater;
+    /** The compressed input. */
+    private final InputStream source;
+    /** Failure of the decompressing thread, reported to the reader at the end of the data. */
+    private volatile IOException failure;
+
+    /** Block currently being read. */
+    private Block current;
+    /** Read position in the current block. */
+    private int pos;
+    /** True once the end marker was taken from the queue. */
+    private boolean finished;
+
+    /**
+     * Starts decompressing the given gzip input.
+     *
+     * @param source the compressed input, closed when this stream is closed
+     */
+    GzipPipeInputStream(InputStream source) {
+        this.source = source;
+        this.inflater = new Thread(this::inflate, "gzip-inflater");
+        this.inflater.setDaemon(true);
+        this.inflater.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (current == null || pos == current.length) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        int count = Math.min(len, current.length - pos);
+        System.arraycopy(current.data, pos, b, off, count);
+        pos += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.interrupt();
+        source.close();
+    }
+
+    /**
+     * Waits for the next block from the decompressing thread.
+     *
+     * @return false at the end of the data
+     * @throws IOException if decompression failed or the wait was interrupted
+     */
+    private boolean nextBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+        try {
+            current = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for gzip data");
+        }
+        pos = 0;
+        if (current == END) {
+            finished = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Body of the decompressing thread: inflates the source block by block into the queue.
+     *
+     * The end marker is always queued, after the data or after a failure, so the reader never
+     * waits for a block that will not come. Only a close by the reader skips it.
+     */
+    private void inflate() {
+        boolean closed = false;
+        try (GZIPInputStream gzip = new GZIPInputStream(source, BLOCK_SIZE)) {
+            while (true) {
+                byte[] data = new byte[BLOCK_SIZE];
+                int length = gzip.readNBytes(data, 0, BLOCK_SIZE);
+                if (length > 0) {
+                    queue.put(new Block(data, length));
+                }
+                if (length < BLOCK_SIZE) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException("Failed to inflate gzip data", e);
+        } catch (InterruptedException e) {
+            closed = true; // closed by the reader, nobody is waiting for the end marker
+        } finally {
+            if (!closed) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    // closed by the reader
+                }
+            }
+        }
+    }
+
+    /**
+     * A block of decompressed data.
+     */
+    private static final class Block {
+        /** The bytes, valid up to length. */
+        private final byte[] data;
+        /** Number of valid bytes. */
+        private final int length;
+
+        /**
+         * Creates a block.
+         *
+         * @param data   the bytes
+         * @param length number of valid bytes
+         */
+        Block(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
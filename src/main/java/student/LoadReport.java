@@ -0,0 +1,264 @@
+package student;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics about one load of a collection.
+ *
+ * Counts how many rows were read, kept, skipped (and why) and dropped as duplicates of a game
+ * already read, how many bytes were processed, and how long each phase took:
+ * <ul>
+ * <li>read: waiting on the input (for memory mapped files, opening and splitting the file, as
+ * the pages themselves are read while parsing)</li>
+ * <li>parse: tokenizing rows and decoding them into games</li>
+ * <li>build: putting the games into the final set</li>
+ * </ul>
+ */
+public final class LoadReport {
+    /** Why a row was skipped. */
+    public enum SkipReason {
+        /** The row has fewer columns than the header needs. */
+        SHORT_ROW,
+        /** One of the numeric columns is not a valid number. */
+        NUMBER_FORMAT
+    }
+
+    /** Rows read, not counting the header. */
+    private long rowsRead;
+    /** Rows turned into games that are in the result. */
+    private long rowsAccepted;
+    /** Rows turned into games equal to one read before, left out of the result. */
+    private long duplicates;
+    /** Rows skipped, indexed by SkipReason ordinal. */
+    private final long[] rowsSkipped = new long[SkipReason.values().length];
+    /** Bytes of input processed, including the header. */
+    private long bytes;
+    /** Time spent reading, in nanoseconds. */
+    private long readNanos;
+    /** Time spent parsing, in nanoseconds. */
+    private long parseNanos;
+    /** Time spent building the result, in nanoseconds. */
+    private long buildNanos;
+    /** Event published for the load, begun when the report is created. */
+    private final CatalogLoadEvent event = new CatalogLoadEvent();
+
+    /** Creates an empty report when a load starts, filled in by the loader. */
+    LoadReport() {
+        event.begin();
+    }
+
+    /**
+     * Get the number of data rows read.
+     *
+     * @return rows read
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Get the number of rows turned into games that are in the result. Once the load is done
+     * this is the number of games loaded.
+     *
+     * @return rows accepted
+     */
+    public long getRowsAccepted() {
+        return rowsAccepted;
+    }
+
+    /**
+     * Get the number of rows left out for repeating a game (same name and id) read before.
+     *
+     * @return duplicate rows
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Get the number of rows skipped for a reason.
+     *
+     * @param reason the reason
+     * @return rows skipped for that reason
+     */
+    public long getRowsSkipped(SkipReason reason) {
+        return rowsSkipped[reason.ordinal()];
+    }
+
+    /**
+     * Get the number of rows skipped for any reason.
+     *
+     * @return rows skipped
+     */
+    public long getRowsSkipped() {
+        long total = 0;
+        for (long skipped : rowsSkipped) {
+            total += skipped;
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of bytes processed.
+     *
+     * @return bytes processed
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the time spent reading.
+     *
+     * @param unit the unit to return
+     * @return read time
+     */
+    public long getReadTime(TimeUnit unit) {
+        return unit.convert(readNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the time spent parsing.
+     *
+     * @param unit the unit to return
+     * @return parse time
+     */
+    public long getParseTime(TimeUnit unit) {
+        return unit.convert(parseNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the time spent building the result.
+     *
+     * @param unit the unit to return
+     * @return build time
+     */
+    public long getBuildTime(TimeUnit unit) {
+        return unit.convert(buildNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the throughput over all phases.
+     *
+     * @return bytes per second, or 0 if nothing was timed
+     */
+    public double getBytesPerSecond() {
+        long total = readNanos + parseNanos + buildNanos;
+        return total == 0 ? 0 : bytes * 1e9 / total;
+    }
+
+    /**
+     * Counts a row that was turned into a game.
+     */
+    void accepted() {
+        rowsRead++;
+        rowsAccepted++;
+    }
+
+    /**
+     * Moves rows from accepted to duplicates, once the result is built without them.
+     *
+     * @param count number of duplicate rows
+     */
+    void duplicates(long count) {
+        rowsAccepted -= count;
+        duplicates += count;
+    }
+
+    /**
+     * Counts a row that was skipped.
+     *
+     * @param reason why it was skipped
+     */
+    void skipped(SkipReason reason) {
+        rowsRead++;
+        rowsSkipped[reason.ordinal()]++;
+    }
+
+    /**
+     * Adds processed bytes.
+     *
+     * @param count number of bytes
+     */
+    void addBytes(long count) {
+        bytes += count;
+    }
+
+    /**
+     * Adds time spent reading.
+     *
+     * @param nanos time in nanoseconds
+     */
+    void addReadTime(long nanos) {
+        readNanos += nanos;
+    }
+
+    /**
+     * Adds time spent parsing.
+     *
+     * @param nanos time in nanoseconds
+     */
+    void addParseTime(long nanos) {
+        parseNanos += nanos;
+    }
+
+    /**
+     * Adds time spent building the result.
+     *
+     * @param nanos time in nanoseconds
+     */
+    void addBuildTime(long nanos) {
+        buildNanos += nanos;
+    }
+
+    /**
+     * Adds the row and byte counts of another report, such as one for a single chunk of the
+     * same file. Times are not added, since chunks are parsed at the same time.
+     *
+     * @param other the report to add
+     */
+    synchronized void addCounts(LoadReport other) {
+        rowsRead += other.rowsRead;
+        rowsAccepted += other.rowsAccepted;
+        duplicates += other.duplicates;
+        for (int i = 0; i < rowsSkipped.length; i++) {
+            rowsSkipped[i] += other.rowsSkipped[i];
+        }
+        bytes += other.bytes;
+    }
+
+    /**
+     * Publishes the report as a JFR event, if the event is enabled in a running recording. The
+     * event lasts from the creation of the report to this call.
+     *
+     * @param source the file or resource that was loaded
+     */
+    void publish(String source) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.source = source;
+        event.rowsRead = rowsRead;
+        event.rowsAccepted = rowsAccepted;
+        event.duplicates = duplicates;
+        event.shortRows = getRowsSkipped(SkipReason.SHORT_ROW);
+        event.badNumbers = getRowsSkipped(SkipReason.NUMBER_FORMAT);
+        event.bytes = bytes;
+        event.readTime = readNanos;
+        event.parseTime = parseNanos;
+        event.buildTime = buildNanos;
+        event.commit();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoadReport{rowsRead=%d, rowsAccepted=%d, duplicates=%d,"
+                + " shortRows=%d, badNumbers=%d, bytes=%d, read=%dms, parse=%dms, build=%dms,"
+                + " %.1f MB/s}",
+                rowsRead, rowsAccepted, duplicates, getRowsSkipped(SkipReason.SHORT_ROW),
+                getRowsSkipped(SkipReason.NUMBER_FORMAT), bytes,
+                getReadTime(TimeUnit.MILLISECONDS), getParseTime(TimeUnit.MILLISECONDS),
+                getBuildTime(TimeUnit.MILLISECONDS), getBytesPerSecond() / 1e6);
+    }
+}
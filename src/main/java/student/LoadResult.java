@@ -0,0 +1,42 @@
+package student;
+
+import java.util.Set;
+
+/**
+ * The games from a collection load, together with the report on how the load went.
+ */
+public final class LoadResult {
+    /** The games that were loaded. */
+    private final Set<BoardGame> games;
+    /** Statistics about the load. */
+    private final LoadReport report;
+
+    /**
+     * Creates a result.
+     *
+     * @param games  the games that were loaded
+     * @param report statistics about the load
+     */
+    LoadResult(Set<BoardGame> games, LoadReport report) {
+        this.games = games;
+        this.report = report;
+    }
+
+    /**
+     * Get the games that were loaded.
+     *
+     * @return the games
+     */
+    public Set<BoardGame> getGames() {
+        return games;
+    }
+
+    /**
+     * Get the statistics about the load.
+     *
+     * @return the load report
+     */
+    public LoadReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,42 @@
+package student;
+
+/**
+ * Decides which game to keep when several collections list the same game id.
+ *
+ * Collections are merged in the order they are given, so "current" is the game kept from the
+ * earlier collections and "incoming" the one from a later collection. The policy only picks
+ * between collections: when one collection lists several games with an id, it is given the one
+ * it would keep of them, and all of them are kept or replaced together.
+ */
+public enum MergePolicy {
+    /** Keep the game from the last collection that lists the id. */
+    LATEST_WINS {
+        @Override
+        public BoardGame resolve(BoardGame current, BoardGame incoming) {
+            return incoming;
+        }
+    },
+    /** Keep the game from the first collection that lists the id. */
+    FIRST_WINS {
+        @Override
+        public BoardGame resolve(BoardGame current, BoardGame incoming) {
+            return current;
+        }
+    },
+    /** Keep the game with the highest average rating, the earliest one on ties. */
+    MAX_RATING {
+        @Override
+        public BoardGame resolve(BoardGame current, BoardGame incoming) {
+            return incoming.getRating() > current.getRating() ? incoming : current;
+        }
+    };
+
+    /**
+     * Picks the game to keep for an id listed more than once.
+     *
+     * @param current  the game kept so far
+     * @param incoming the game from a later collection
+     * @return the game to keep
+     */
+    public abstract BoardGame resolve(BoardGame current, BoardGame incoming);
+}
@@ -0,0 +1,256 @@
+package student;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Filter condition on the name of a game.
+ *
+ * When evaluated against a catalog it works on the catalog's {@link NameDictionary}. A contains
+ * check is turned into the set of name ids that hold the value, found with the dictionary's
+ * trigram index, and every comparison into a range of name ids, once per dictionary, so a game
+ * only costs a bit test or an int comparison. Selective comparisons can also be answered by the
+ * catalog's name sort index; contains checks are left to the planner's scans.
+ */
+final class NameCondition implements FilterCondition {
+    /**
+     * Relative cost of a contains check: the row's name id is looked up and tested in the set
+     * found with the trigram index, which is searched once per dictionary.
+     */
+    private static final double CONTAINS_COST = 2.0;
+
+    /** The operation. */
+    private final Operations operation;
+    /** The value to compare against. */
+    private final String value;
+    /** The value in lower case, for contains checks and the normalized text. */
+    private final String foldedValue;
+    /** True for the contains operation. */
+    private final boolean contains;
+    /** Name id range for the dictionary last evaluated against. */
+    private volatile Bounds bounds;
+    /** Name ids holding the value, for the dictionary last searched by a contains check. */
+    private volatile Matches matches;
+
+    /**
+     * Creates a name condition.
+     *
+     * @param operation the operation
+     * @param value     the value to compare against
+     */
+    NameCondition(Operations operation, String value) {
+        this.operation = operation;
+        this.value = value;
+        this.foldedValue = value.toLowerCase();
+        this.contains = operation == Operations.CONTAINS;
+    }
+
+    @Override
+    public boolean check(BoardGame game) {
+        return switch (operation) {
+            case CONTAINS -> game.getName().toLowerCase().contains(foldedValue);
+            case EQUALS -> game.getName().equalsIgnoreCase(value);
+            case NOT_EQUALS -> !game.getName().equalsIgnoreCase(value);
+            case GREATER_THAN -> game.getName().compareToIgnoreCase(value) > 0;
+            case LESS_THAN -> game.getName().compareToIgnoreCase(value) < 0;
+            case GREATER_THAN_EQUALS -> game.getName().compareToIgnoreCase(value) >= 0;
+            default -> game.getName().compareToIgnoreCase(value) <= 0;
+        };
+    }
+
+    @Override
+    public boolean test(Catalog catalog, int row) {
+        NameDictionary names = catalog.names();
+        int id = catalog.nameId(row);
+        if (contains) {
+            return matchesFor(names).holds(id);
+        }
+        Bounds b = boundsFor(names);
+        return (id >= b.from && id < b.to) != b.negate;
+    }
+
+    @Override
+    public IntPredicate bind(Catalog catalog) {
+        NameDictionary names = catalog.names();
+        if (contains) {
+            Matches m = matchesFor(names);
+            return row -> m.holds(catalog.nameId(row));
+        }
+        Bounds b = boundsFor(names);
+        int from = b.from;
+        int to = b.to;
+        if (b.negate) {
+            return row -> {
+                int id = catalog.nameId(row);
+                return id < from || id >= to;
+            };
+        }
+        return row -> {
+            int id = catalog.nameId(row);
+            return id >= from && id < to;
+        };
+    }
+
+    @Override
+    public String normalized() {
+        // every name operation ignores case, so values differing only in case are the same query
+        return GameData.NAME.getColumnName() + operation.getOperator() + foldedValue;
+    }
+
+    @Override
+    public double selectivity(Catalog catalog) {
+        NameDictionary names = catalog.names();
+        ColumnHistogram histogram = catalog.histogram(GameData.NAME);
+        if (contains) {
+            Matches m = matchesFor(names);
+            return histogram.matching(id -> m.holds((int) id));
+        }
+        Bounds b = boundsFor(names);
+        double inside = histogram.below(b.to, false) - histogram.below(b.from, false);
+        return b.negate ? 1 - inside : inside;
+    }
+
+    @Override
+    public double cost() {
+        return contains ? CONTAINS_COST : 1.0;
+    }
+
+    @Override
+    public SortIndex.Range range(Catalog catalog) {
+        if (contains || boundsFor(catalog.names()).negate) {
+            return null;
+        }
+        return boundsRange(catalog);
+    }
+
+    @Override
+    public RowBitmap bitmap(Catalog catalog) {
+        if (contains || catalog.filterIndex(GameData.NAME, this) == null) {
+            return null;
+        }
+        SortIndex.Range range = boundsRange(catalog);
+        return boundsFor(catalog.names()).negate ? range.complement() : range.bitmap();
+    }
+
+    /**
+     * Get the range of the name sort index that holds the name id range of the condition.
+     *
+     * @param catalog the catalog to search
+     * @return the range of the name order, ignoring negation
+     */
+    private SortIndex.Range boundsRange(Catalog catalog) {
+        NameDictionary names = catalog.names();
+        Bounds b = boundsFor(names);
+        SortIndex index = catalog.sortIndex(GameData.NAME);
+        if (b.from >= b.to) {
+            return index.range(0, 0);
+        }
+        return index.range(index.rankBound(names.collationKey(b.from)),
+                index.rankBound(names.collationKey(b.to - 1) + 1));
+    }
+
+    /**
+     * Get the range of name ids that match in a dictionary, computing it on first use.
+     *
+     * @param names the dictionary
+     * @return the matching range of ids
+     */
+    private Bounds boundsFor(NameDictionary names) {
+        Bounds b = bounds;
+        if (b != null && b.names == names) {
+            return b;
+        }
+        int first = names.bound(value, false);
+        int after = names.bound(value, true);
+        b = switch (operation) {
+            case EQUALS -> new Bounds(names, first, after, false);
+            case NOT_EQUALS -> new Bounds(names, first, after, true);
+            case GREATER_THAN -> new Bounds(names, after, names.size(), false);
+            case LESS_THAN -> new Bounds(names, 0, first, false);
+            case GREATER_THAN_EQUALS -> new Bounds(names, first, names.size(), false);
+            default -> new Bounds(names, 0, after, false);
+        };
+        bounds = b;
+        return b;
+    }
+
+    /**
+     * Get the set of name ids that hold the value in a dictionary, computing it on first use.
+     *
+     * @param names the dictionary
+     * @return the matching ids
+     */
+    private Matches matchesFor(NameDictionary names) {
+        Matches m = matches;
+        if (m != null && m.names == names) {
+            return m;
+        }
+        long[] ids = new long[(names.size() + Long.SIZE - 1) / Long.SIZE];
+        for (int id : names.containing(foldedValue)) {
+            ids[id >>> 6] |= 1L << id;
+        }
+        m = new Matches(names, ids);
+        matches = m;
+        return m;
+    }
+
+    /**
+     * Set of the name ids in one dictionary whose names hold the value of a contains check.
+     */
+    private static final class Matches {
+        /** The dictionary the ids belong to. */
+        private final NameDictionary names;
+        /** Bitset of the matching ids. */
+        private final long[] ids;
+
+        /**
+         * Creates the set.
+         *
+         * @param names the dictionary the ids belong to
+         * @param ids   bitset of the matching ids
+         */
+        Matches(NameDictionary names, long[] ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        /**
+         * Check if an id is in the set.
+         *
+         * @param id the name id
+         * @return true if the name holds the value
+         */
+        boolean holds(int id) {
+            return (ids[id >>> 6] & 1L << id) != 0;
+        }
+    }
+
+    /**
+     * Range of name ids [from, to) that match in one dictionary, or that do not match when
+     * negated.
+     */
+    private static final class Bounds {
+        /** The dictionary the ids belong to. */
+        private final NameDictionary names;
+        /** First id of the range. */
+        private final int from;
+        /** One past the last id of the range. */
+        private final int to;
+        /** True if ids outside the range match. */
+        private final boolean negate;
+
+        /**
+         * Creates the range.
+         *
+         * @param names  the dictionary the ids belong to
+         * @param from   first id of the range
+         * @param to     one past the last id of the range
+         * @param negate true if ids outside the range match
+         */
+        Bounds(NameDictionary names, int from, int to, boolean negate) {
+            this.names = names;
+            this.from = from;
+            this.to = to;
+            this.negate = negate;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package student;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Catalog wide store of game names.
+ *
+ * Every distinct name is held once, together with its lower case form and a collation key, so
+ * name filters and name sorting never have to fold case per game. Name ids are handed out in
+ * case insensitive order, which means comparing two ids gives the same answer as comparing the
+ * names with {@link String#CASE_INSENSITIVE_ORDER}, except for names that only differ in case;
+ * those share the same collation key. Contains searches of three or more chars are narrowed
+ * down with a {@link TrigramIndex} of the lower case names.
+ *
+ * When a catalog is patched, names it did not hold yet are merged in, giving a new dictionary
+ * whose ids are shifted but keep their order, and whose trigram index is patched rather than
+ * built again. Names that no row uses any more are kept until the catalog drops them with
+ * {@link #without(boolean[], int[])}, which also keeps the order of the ids.
+ */
+final class NameDictionary {
+    /** Distinct names, sorted case insensitively. The index is the name id. */
+    private final String[] names;
+    /** Lower case form of each name, used for contains searches. */
+    private final String[] folded;
+    /** Collation key of each name, equal for names that only differ in case. */
+    private final int[] collation;
+    /** Trigram index of the lower case names, built on first use. */
+    private volatile TrigramIndex trigrams;
+
+    /**
+     * Creates a dictionary from the sorted distinct names.
+     *
+     * @param names distinct names, sorted with String.CASE_INSENSITIVE_ORDER
+     */
+    private NameDictionary(String[] names) {
+        this(names, new String[names.length]);
+        for (int i = 0; i < names.length; i++) {
+            folded[i] = names[i].toLowerCase();
+        }
+    }
+
+    /**
+     * Creates a dictionary from the sorted distinct names and their lower case forms.
+     *
+     * @param names  distinct names, sorted with String.CASE_INSENSITIVE_ORDER
+     * @param folded lower case form of each name, filled in by the caller if not yet
+     */
+    private NameDictionary(String[] names, String[] folded) {
+        this.names = names;
+        this.folded = folded;
+        this.collation = new int[names.length];
+        int key = -1;
+        for (int i = 0; i < names.length; i++) {
+            if (i == 0 || String.CASE_INSENSITIVE_ORDER.compare(names[i - 1], names[i]) != 0) {
+                key++;
+            }
+            collation[i] = key;
+        }
+    }
+
+    /**
+     * Builds the dictionary for the names of a catalog.
+     *
+     * @param rowNames the name of each row, in catalog order
+     * @param nameIds  filled with the name id of each row, must be as long as the names
+     * @return the dictionary
+     */
+    static NameDictionary build(String[] rowNames, int[] nameIds) {
+        Map<String, Integer> distinct = new HashMap<>(rowNames.length * 4 / 3 + 1);
+        for (String name : rowNames) {
+            distinct.putIfAbsent(name, distinct.size());
+        }
+        String[] sorted = distinct.keySet().toArray(new String[0]);
+        Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+        for (int id = 0; id < sorted.length; id++) {
+            distinct.put(sorted[id], id);
+        }
+        for (int row = 0; row < nameIds.length; row++) {
+            nameIds[row] = distinct.get(rowNames[row]);
+        }
+        return new NameDictionary(sorted);
+    }
+
+    /**
+     * Builds the dictionary that also holds some new names. The old names keep their order, so
+     * the shift from old to new ids is ascending. A trigram index that was already built is
+     * patched with the new names.
+     *
+     * @param added distinct names not in this dictionary, sorted with
+     *              String.CASE_INSENSITIVE_ORDER
+     * @param shift filled with the new id of each old id, must be as long as this dictionary
+     * @return the new dictionary
+     */
+    NameDictionary with(String[] added, int[] shift) {
+        int total = names.length + added.length;
+        String[] merged = new String[total];
+        String[] mergedFolded = new String[total];
+        int[] addedIds = new int[added.length];
+        int i = 0;
+        int j = 0;
+        for (int id = 0; id < total; id++) {
+            // names equal but for case share a collation key, so their order is free
+            if (j == added.length || (i < names.length
+                    && String.CASE_INSENSITIVE_ORDER.compare(names[i], added[j]) <= 0)) {
+                shift[i] = id;
+                merged[id] = names[i];
+                mergedFolded[id] = folded[i++];
+            } else {
+                addedIds[j] = id;
+                merged[id] = added[j];
+                mergedFolded[id] = added[j++].toLowerCase();
+            }
+        }
+        NameDictionary next = new NameDictionary(merged, mergedFolded);
+        TrigramIndex index = trigrams;
+        if (index != null) {
+            next.trigrams = index.with(next, shift, addedIds);
+        }
+        return next;
+    }
+
+    /**
+     * Builds the dictionary without the names that are no longer used. The names kept keep
+     * their order, so the shift from old to new ids is ascending. The trigram index is built
+     * again on first use.
+     *
+     * @param used  true for each id that is still used, must be as long as this dictionary
+     * @param shift filled with the new id of each old id, must be as long as this dictionary;
+     *              an id that is dropped gets the new id of the next name kept
+     * @return the new dictionary
+     */
+    NameDictionary without(boolean[] used, int[] shift) {
+        int kept = 0;
+        for (int id = 0; id < names.length; id++) {
+            shift[id] = kept;
+            if (used[id]) {
+                kept++;
+            }
+        }
+        String[] compact = new String[kept];
+        String[] compactFolded = new String[kept];
+        for (int id = 0; id < names.length; id++) {
+            if (used[id]) {
+                compact[shift[id]] = names[id];
+                compactFolded[shift[id]] = folded[id];
+            }
+        }
+        return new NameDictionary(compact, compactFolded);
+    }
+
+    /**
+     * Finds the id of a name.
+     *
+     * @param name the name, with its case
+     * @return the id of the name, or -1 if it is not in the dictionary
+     */
+    int find(String name) {
+        for (int id = bound(name, false); id < names.length
+                && String.CASE_INSENSITIVE_ORDER.compare(names[id], name) == 0; id++) {
+            if (names[id].equals(name)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of distinct names.
+     *
+     * @return number of names
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * Get a name.
+     *
+     * @param id the name id
+     * @return the name
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Get the lower case form of a name.
+     *
+     * @param id the name id
+     * @return the name in lower case
+     */
+    String folded(int id) {
+        return folded[id];
+    }
+
+    /**
+     * Finds the names that contain a value. Values of at least three chars only check the names
+     * that the trigram index leaves over; shorter values check every name.
+     *
+     * @param folded the value in lower case
+     * @return ids of the names whose lower case form contains the value, ascending
+     */
+    int[] containing(String folded) {
+        if (folded.length() < TrigramIndex.LENGTH) {
+            int[] ids = new int[names.length];
+            int count = 0;
+            for (int id = 0; id < names.length; id++) {
+                if (this.folded[id].contains(folded)) {
+                    ids[count++] = id;
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        }
+        int[] ids = trigrams().candidates(folded);
+        int count = 0;
+        for (int id : ids) {
+            if (this.folded[id].contains(folded)) {
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Get the trigram index of the names, building it on first use.
+     *
+     * @return the index
+     */
+    private TrigramIndex trigrams() {
+        TrigramIndex index = trigrams;
+        if (index == null) {
+            synchronized (this) {
+                index = trigrams;
+                if (index == null) {
+                    index = TrigramIndex.build(this);
+                    trigrams = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the collation key of a name. Keys order names the same way as
+     * String.CASE_INSENSITIVE_ORDER, including ties.
+     *
+     * @param id the name id
+     * @return the collation key
+     */
+    int collationKey(int id) {
+        return collation[id];
+    }
+
+    /**
+     * Finds the first name id that does not sort before the value, ignoring case.
+     *
+     * @param value the value to look for
+     * @param after true to find the first id that sorts strictly after the value instead
+     * @return the first matching id, or {@link #size()} if there is none
+     */
+    int bound(String value, boolean after) {
+        int lo = 0;
+        int hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = String.CASE_INSENSITIVE_ORDER.compare(names[mid], value);
+            if (cmp < 0 || (after && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
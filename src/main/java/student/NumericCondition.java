@@ -0,0 +1,463 @@
+package student;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Filter condition on one of the numeric fields of a game.
+ *
+ * When evaluated against a catalog it reads the field's column directly, so no game is created
+ * to test a row. Bound to a catalog, it becomes a predicate specialised for its operation and
+ * column type, comparing primitives with no boxing and no operator lookup per row. For batches,
+ * every operation becomes a test of whether the value lies inside or outside an interval. Every
+ * operation can also be answered by a binary search of the field's sort index; != is the rows
+ * outside the range of ==. The index is only used when it is already built, or when the
+ * condition is selective and the field is filtered on often enough to pay for building it.
+ */
+final class NumericCondition implements FilterCondition {
+    /** The field to compare. */
+    private final GameData field;
+    /** The operation. */
+    private final Operations operation;
+    /** The value to compare against. */
+    private final double target;
+
+    /**
+     * Creates a numeric condition.
+     *
+     * @param field     the field to compare
+     * @param operation the operation
+     * @param target    the value to compare against, a whole number for int fields
+     * @throws IllegalArgumentException if the operation cannot compare numbers, or the target is
+     *                                  not a whole number for an int field
+     */
+    NumericCondition(GameData field, Operations operation, double target) {
+        if (operation == Operations.CONTAINS) {
+            throw new IllegalArgumentException("Invalid condition: " + operation.getOperator());
+        }
+        if (!Catalog.isDecimal(field) && target != (int) target) {
+            throw new IllegalArgumentException(target + " is not an integer");
+        }
+        this.field = field;
+        this.operation = operation;
+        this.target = target;
+    }
+
+    @Override
+    public boolean check(BoardGame game) {
+        return compare(value(game));
+    }
+
+    @Override
+    public boolean test(Catalog catalog, int row) {
+        if (Catalog.isDecimal(field)) {
+            return compare(catalog.doubleColumn(field)[row]);
+        }
+        return compare(catalog.intColumn(field)[row]);
+    }
+
+    @Override
+    public IntPredicate bind(Catalog catalog) {
+        if (Catalog.isDecimal(field)) {
+            return bindDouble(catalog.doubleColumn(field), operation, target);
+        }
+        return bindInt(catalog.intColumn(field), operation, (int) target);
+    }
+
+    @Override
+    public BatchFilter batch(Catalog catalog) {
+        if (Catalog.isDecimal(field)) {
+            return batchDouble(catalog.doubleColumn(field), operation, target);
+        }
+        return batchInt(catalog.intColumn(field), operation, (int) target);
+    }
+
+    @Override
+    public String normalized() {
+        String value = Catalog.isDecimal(field) ? Double.toString(target)
+                : Integer.toString((int) target);
+        return field.getColumnName() + operation.getOperator() + value;
+    }
+
+    @Override
+    public double selectivity(Catalog catalog) {
+        ColumnHistogram histogram = catalog.histogram(field);
+        double equal = histogram.below(target, true) - histogram.below(target, false);
+        return switch (operation) {
+            case GREATER_THAN -> 1 - histogram.below(target, true);
+            case GREATER_THAN_EQUALS -> 1 - histogram.below(target, false);
+            case LESS_THAN -> histogram.below(target, false);
+            case LESS_THAN_EQUALS -> histogram.below(target, true);
+            case EQUALS -> equal;
+            default -> 1 - equal;
+        };
+    }
+
+    @Override
+    public double cost() {
+        return 1.0;
+    }
+
+    @Override
+    public SortIndex.Range range(Catalog catalog) {
+        if (operation == Operations.NOT_EQUALS) {
+            return null;
+        }
+        SortIndex index = catalog.sortIndex(field);
+        if (Double.isNaN(target)) {
+            return equalRange(index);
+        }
+        int end = index.comparableEnd();
+        return switch (operation) {
+            case GREATER_THAN -> index.range(index.bound(target, true), end);
+            case GREATER_THAN_EQUALS -> index.range(index.bound(target, false), end);
+            case LESS_THAN -> index.range(0, index.bound(target, false));
+            case LESS_THAN_EQUALS -> index.range(0, index.bound(target, true));
+            default -> equalRange(index);
+        };
+    }
+
+    @Override
+    public RowBitmap bitmap(Catalog catalog) {
+        if (catalog.filterIndex(field, this) == null) {
+            return null;
+        }
+        if (operation == Operations.NOT_EQUALS) {
+            return equalRange(catalog.sortIndex(field)).complement();
+        }
+        return FilterCondition.super.bitmap(catalog);
+    }
+
+    /**
+     * Get the range of an index holding the value.
+     *
+     * @param index the sort index of the field
+     * @return the rows equal to the target, empty for NaN
+     */
+    private SortIndex.Range equalRange(SortIndex index) {
+        if (Double.isNaN(target)) {
+            return index.range(0, 0);
+        }
+        return index.range(index.bound(target, false), index.bound(target, true));
+    }
+
+    /**
+     * Retrieves the value of the field from a game.
+     *
+     * @param game the board game
+     * @return the value of the field
+     * @throws IllegalArgumentException if the field is not numeric
+     */
+    private double value(BoardGame game) {
+        return switch (field) {
+            case MAX_PLAYERS -> game.getMaxPlayers();
+            case MIN_PLAYERS -> game.getMinPlayers();
+            case MIN_TIME -> game.getMinPlayTime();
+            case MAX_TIME -> game.getMaxPlayTime();
+            case YEAR -> game.getYearPublished();
+            case RANK -> game.getRank();
+            case RATING -> game.getRating();
+            case DIFFICULTY -> game.getDifficulty();
+            default -> throw new IllegalArgumentException("Invalid condition: " + field);
+        };
+    }
+
+    /**
+     * Compares a value with the target using the operation.
+     *
+     * @param actual the actual value
+     * @return true if the condition is satisfied, false otherwise
+     */
+    private boolean compare(double actual) {
+        return switch (operation) {
+            case GREATER_THAN -> actual > target;
+            case LESS_THAN -> actual < target;
+            case GREATER_THAN_EQUALS -> actual >= target;
+            case LESS_THAN_EQUALS -> actual <= target;
+            case EQUALS -> actual == target;
+            default -> actual != target;
+        };
+    }
+
+    /**
+     * Builds the row predicate for an int column. Each operation gets its own lambda, so every
+     * predicate is a single primitive comparison.
+     *
+     * @param column    the column
+     * @param operation the operation
+     * @param target    the value to compare against
+     * @return the predicate over rows of the column
+     */
+    private static IntPredicate bindInt(int[] column, Operations operation, int target) {
+        return switch (operation) {
+            case GREATER_THAN -> row -> column[row] > target;
+            case LESS_THAN -> row -> column[row] < target;
+            case GREATER_THAN_EQUALS -> row -> column[row] >= target;
+            case LESS_THAN_EQUALS -> row -> column[row] <= target;
+            case EQUALS -> row -> column[row] == target;
+            default -> row -> column[row] != target;
+        };
+    }
+
+    /**
+     * Builds the row predicate for a double column. Each operation gets its own lambda, so every
+     * predicate is a single primitive comparison.
+     *
+     * @param column    the column
+     * @param operation the operation
+     * @param target    the value to compare against
+     * @return the predicate over rows of the column
+     */
+    private static IntPredicate bindDouble(double[] column, Operations operation, double target) {
+        return switch (operation) {
+            case GREATER_THAN -> row -> column[row] > target;
+            case LESS_THAN -> row -> column[row] < target;
+            case GREATER_THAN_EQUALS -> row -> column[row] >= target;
+            case LESS_THAN_EQUALS -> row -> column[row] <= target;
+            case EQUALS -> row -> column[row] == target;
+            default -> row -> column[row] != target;
+        };
+    }
+
+    /**
+     * Builds the batch filter for an int column. Every operation is a test of whether the value
+     * lies inside, or for != outside, an interval of values.
+     *
+     * @param column    the column
+     * @param operation the operation
+     * @param target    the value to compare against
+     * @return the batch filter over rows of the column
+     */
+    private static BatchFilter batchInt(int[] column, Operations operation, int target) {
+        return switch (operation) {
+            case GREATER_THAN -> target == Integer.MAX_VALUE ? (rows, count) -> 0
+                    : new IntInside(column, target + 1, Integer.MAX_VALUE);
+            case LESS_THAN -> target == Integer.MIN_VALUE ? (rows, count) -> 0
+                    : new IntInside(column, Integer.MIN_VALUE, target - 1);
+            case GREATER_THAN_EQUALS -> new IntInside(column, target, Integer.MAX_VALUE);
+            case LESS_THAN_EQUALS -> new IntInside(column, Integer.MIN_VALUE, target);
+            case EQUALS -> new IntInside(column, target, target);
+            default -> new IntOutside(column, target, target);
+        };
+    }
+
+    /**
+     * Builds the batch filter for a double column. Every operation is a test of whether the
+     * value lies inside, or for != outside, an interval of values. A NaN bound makes the
+     * interval empty, as no value compares with NaN.
+     *
+     * @param column    the column
+     * @param operation the operation
+     * @param target    the value to compare against
+     * @return the batch filter over rows of the column
+     */
+    private static BatchFilter batchDouble(double[] column, Operations operation, double target) {
+        double inf = Double.POSITIVE_INFINITY;
+        return switch (operation) {
+            case GREATER_THAN -> new DoubleInside(column,
+                    target == inf ? Double.NaN : Math.nextUp(target), inf);
+            case LESS_THAN -> new DoubleInside(column,
+                    -inf, target == -inf ? Double.NaN : Math.nextDown(target));
+            case GREATER_THAN_EQUALS -> new DoubleInside(column, target, inf);
+            case LESS_THAN_EQUALS -> new DoubleInside(column, -inf, target);
+            case EQUALS -> new DoubleInside(column, target, target);
+            default -> new DoubleOutside(column, target, target);
+        };
+    }
+
+    /**
+     * Batch filter keeping the rows whose int value lies inside an interval. Rows are kept
+     * without a branch: each row is written to the next free slot of the vector, and the slot is
+     * only taken if the row passes.
+     */
+    private static final class IntInside implements BatchFilter {
+        /** The column. */
+        private final int[] column;
+        /** Smallest value inside the interval. */
+        private final int low;
+        /** Largest value inside the interval. */
+        private final int high;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the column
+         * @param low    smallest value inside the interval
+         * @param high   largest value inside the interval
+         */
+        IntInside(int[] column, int low, int high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int select(int[] rows, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                int value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 1 : 0;
+            }
+            return kept;
+        }
+
+        @Override
+        public int select(int from, int to, int[] rows) {
+            int kept = 0;
+            for (int row = from; row < to; row++) {
+                int value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 1 : 0;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Batch filter keeping the rows whose int value lies outside an interval, the same way as
+     * {@link IntInside}.
+     */
+    private static final class IntOutside implements BatchFilter {
+        /** The column. */
+        private final int[] column;
+        /** Smallest value inside the interval. */
+        private final int low;
+        /** Largest value inside the interval. */
+        private final int high;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the column
+         * @param low    smallest value inside the interval
+         * @param high   largest value inside the interval
+         */
+        IntOutside(int[] column, int low, int high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int select(int[] rows, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                int value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 0 : 1;
+            }
+            return kept;
+        }
+
+        @Override
+        public int select(int from, int to, int[] rows) {
+            int kept = 0;
+            for (int row = from; row < to; row++) {
+                int value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 0 : 1;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Batch filter keeping the rows whose double value lies inside an interval, the same way as
+     * {@link IntInside}.
+     */
+    private static final class DoubleInside implements BatchFilter {
+        /** The column. */
+        private final double[] column;
+        /** Smallest value inside the interval. */
+        private final double low;
+        /** Largest value inside the interval. */
+        private final double high;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the column
+         * @param low    smallest value inside the interval
+         * @param high   largest value inside the interval
+         */
+        DoubleInside(double[] column, double low, double high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int select(int[] rows, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                double value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 1 : 0;
+            }
+            return kept;
+        }
+
+        @Override
+        public int select(int from, int to, int[] rows) {
+            int kept = 0;
+            for (int row = from; row < to; row++) {
+                double value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 1 : 0;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Batch filter keeping the rows whose double value lies outside an interval, the same way as
+     * {@link IntInside}. NaN lies outside every interval.
+     */
+    private static final class DoubleOutside implements BatchFilter {
+        /** The column. */
+        private final double[] column;
+        /** Smallest value inside the interval. */
+        private final double low;
+        /** Largest value inside the interval. */
+        private final double high;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the column
+         * @param low    smallest value inside the interval
+         * @param high   largest value inside the interval
+         */
+        DoubleOutside(double[] column, double low, double high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int select(int[] rows, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                double value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 0 : 1;
+            }
+            return kept;
+        }
+
+        @Override
+        public int select(int from, int to, int[] rows) {
+            int kept = 0;
+            for (int row = from; row < to; row++) {
+                double value = column[row];
+                rows[kept] = row;
+                kept += value >= low & value <= high ? 0 : 1;
+            }
+            return kept;
+        }
+    }
+}
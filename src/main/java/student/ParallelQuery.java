@@ -0,0 +1,310 @@
+package student;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the filtering and sorting of a query on a ForkJoin pool.
+ *
+ * Work is cut into chunks of consecutive rows, a few per worker so that uneven chunks even out,
+ * and each chunk is a task of its own. Filtered chunks keep their rows at their own start and
+ * are joined up in order afterwards, so a parallel result is the same as a sequential one. Sort
+ * keys are sorted by a merge sort whose merges are split between workers too.
+ *
+ * Queries smaller than {@link #THRESHOLD} rows, or pools with a single worker, are not worth
+ * the hand-off and stay on the calling thread.
+ */
+final class ParallelQuery {
+    /** Smallest number of rows worth spreading over a pool. */
+    static final int THRESHOLD = 1 << 16;
+    /** Number of chunks per worker. */
+    private static final int CHUNKS_PER_WORKER = 4;
+    /** Smallest chunk, in rows. */
+    private static final int MIN_CHUNK = 8 * BatchScan.BLOCK;
+
+    /** private constructor to prevent instantiation. */
+    private ParallelQuery() {
+    }
+
+    /**
+     * Check if work on a number of rows should be spread over a pool.
+     *
+     * @param pool the pool, or null to run on the calling thread
+     * @param size number of rows
+     * @return true if the work should run in parallel
+     */
+    static boolean worthIt(ForkJoinPool pool, int size) {
+        return pool != null && pool.getParallelism() > 1 && size >= THRESHOLD;
+    }
+
+    /**
+     * Get the number of chunks to cut a number of rows into.
+     *
+     * @param pool the pool
+     * @param size number of rows
+     * @return the number of chunks, at least 1
+     */
+    static int chunks(ForkJoinPool pool, int size) {
+        int chunks = pool.getParallelism() * CHUNKS_PER_WORKER;
+        return Math.max(1, Math.min(chunks, size / MIN_CHUNK));
+    }
+
+    /**
+     * Get the start of a chunk. Chunks other than the first start on a block boundary.
+     *
+     * @param chunk  the chunk, or the number of chunks for the end of the last one
+     * @param chunks the number of chunks
+     * @param size   number of rows
+     * @return the first row of the chunk
+     */
+    static int start(int chunk, int chunks, int size) {
+        if (chunk == chunks) {
+            return size;
+        }
+        long start = (long) size * chunk / chunks;
+        return (int) (start - start % BatchScan.BLOCK);
+    }
+
+    /**
+     * Runs a task for every chunk and waits for all of them.
+     *
+     * @param pool   the pool to run on
+     * @param chunks the number of chunks
+     * @param task   the task, given the chunk number
+     */
+    static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer task) {
+        pool.invoke(new ChunkAction(task, 0, chunks));
+    }
+
+    /**
+     * Filters rows chunk by chunk in parallel and joins the results up.
+     *
+     * @param pool   the pool to run on
+     * @param size   number of rows to filter
+     * @param rows   array holding the result; each chunk [from, to) leaves its kept rows at the
+     *               start of its own part of it
+     * @param filter filters the chunk [from, to) and returns the number of rows kept
+     * @return number of rows kept, in order at the start of rows
+     */
+    static int filter(ForkJoinPool pool, int size, int[] rows, IntBinaryOperator filter) {
+        int chunks = chunks(pool, size);
+        int[] kept = new int[chunks];
+        forEachChunk(pool, chunks, chunk -> kept[chunk] =
+                filter.applyAsInt(start(chunk, chunks, size), start(chunk + 1, chunks, size)));
+        int count = kept[0];
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            System.arraycopy(rows, start(chunk, chunks, size), rows, count, kept[chunk]);
+            count += kept[chunk];
+        }
+        return count;
+    }
+
+    /**
+     * Sorts keys in parallel.
+     *
+     * @param pool the pool to run on
+     * @param keys the keys to sort
+     */
+    static void sort(ForkJoinPool pool, long[] keys) {
+        long[] buffer = new long[keys.length];
+        int leaf = Math.max(MIN_CHUNK, keys.length / chunks(pool, keys.length));
+        pool.invoke(new SortAction(keys, buffer, 0, keys.length, leaf));
+    }
+
+    /**
+     * Runs a task for a range of chunks, splitting the range in half until a single chunk is
+     * left.
+     */
+    private static final class ChunkAction extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The task, given the chunk number. */
+        private final IntConsumer task;
+        /** First chunk of this action. */
+        private final int from;
+        /** One past the last chunk of this action. */
+        private final int to;
+
+        /**
+         * Creates an action for the chunks [from, to).
+         *
+         * @param task the task, given the chunk number
+         * @param from first chunk
+         * @param to   one past the last chunk
+         */
+        ChunkAction(IntConsumer task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkAction(task, from, mid), new ChunkAction(task, mid, to));
+            } else if (to > from) {
+                task.accept(from);
+            }
+        }
+    }
+
+    /**
+     * Sorts a range of keys: small ranges directly, larger ones by sorting both halves in
+     * parallel and merging them.
+     */
+    private static final class SortAction extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The keys. */
+        private final long[] keys;
+        /** Scratch space as long as the keys. */
+        private final long[] buffer;
+        /** First position of the range. */
+        private final int from;
+        /** One past the last position of the range. */
+        private final int to;
+        /** Largest range sorted directly. */
+        private final int leaf;
+
+        /**
+         * Creates an action for the range [from, to).
+         *
+         * @param keys   the keys
+         * @param buffer scratch space as long as the keys
+         * @param from   first position of the range
+         * @param to     one past the last position of the range
+         * @param leaf   largest range sorted directly
+         */
+        SortAction(long[] keys, long[] buffer, int from, int to, int leaf) {
+            this.keys = keys;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leaf) {
+                Arrays.sort(keys, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortAction(keys, buffer, from, mid, leaf),
+                    new SortAction(keys, buffer, mid, to, leaf));
+            System.arraycopy(keys, from, buffer, from, to - from);
+            new MergeAction(buffer, from, mid, mid, to, keys, from, leaf).compute();
+        }
+    }
+
+    /**
+     * Merges two sorted ranges. Large merges are split at the middle key of the longer range,
+     * found in the other range by binary search, and both halves are merged in parallel.
+     */
+    private static final class MergeAction extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** Array holding both ranges. */
+        private final long[] source;
+        /** First position of the left range. */
+        private final int leftFrom;
+        /** One past the last position of the left range. */
+        private final int leftTo;
+        /** First position of the right range. */
+        private final int rightFrom;
+        /** One past the last position of the right range. */
+        private final int rightTo;
+        /** Array to write the merged keys to. */
+        private final long[] target;
+        /** Position of the first merged key. */
+        private final int at;
+        /** Largest merge done directly. */
+        private final int leaf;
+
+        /**
+         * Creates a merge.
+         *
+         * @param source    array holding both ranges
+         * @param leftFrom  first position of the left range
+         * @param leftTo    one past the last position of the left range
+         * @param rightFrom first position of the right range
+         * @param rightTo   one past the last position of the right range
+         * @param target    array to write the merged keys to
+         * @param at        position of the first merged key
+         * @param leaf      largest merge done directly
+         */
+        MergeAction(long[] source, int leftFrom, int leftTo, int rightFrom, int rightTo,
+                long[] target, int at, int leaf) {
+            this.source = source;
+            this.leftFrom = leftFrom;
+            this.leftTo = leftTo;
+            this.rightFrom = rightFrom;
+            this.rightTo = rightTo;
+            this.target = target;
+            this.at = at;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected void compute() {
+            int left = leftTo - leftFrom;
+            int right = rightTo - rightFrom;
+            if (left + right <= leaf || left == 0 || right == 0) {
+                merge();
+                return;
+            }
+            int leftMid;
+            int rightMid;
+            if (left >= right) {
+                leftMid = (leftFrom + leftTo) >>> 1;
+                rightMid = lowerBound(rightFrom, rightTo, source[leftMid]);
+            } else {
+                rightMid = (rightFrom + rightTo) >>> 1;
+                leftMid = lowerBound(leftFrom, leftTo, source[rightMid]);
+            }
+            int split = at + (leftMid - leftFrom) + (rightMid - rightFrom);
+            invokeAll(new MergeAction(source, leftFrom, leftMid, rightFrom, rightMid, target, at,
+                            leaf),
+                    new MergeAction(source, leftMid, leftTo, rightMid, rightTo, target, split,
+                            leaf));
+        }
+
+        /**
+         * Merges the ranges on this thread.
+         */
+        private void merge() {
+            int i = leftFrom;
+            int j = rightFrom;
+            int n = at;
+            while (i < leftTo && j < rightTo) {
+                target[n++] = source[i] <= source[j] ? source[i++] : source[j++];
+            }
+            System.arraycopy(source, i, target, n, leftTo - i);
+            System.arraycopy(source, j, target, n + leftTo - i, rightTo - j);
+        }
+
+        /**
+         * Finds the first position of a sorted range holding a key not below a value.
+         *
+         * @param from  first position of the range
+         * @param to    one past the last position of the range
+         * @param value the value
+         * @return the position, to if every key is below the value
+         */
+        private int lowerBound(int from, int to, long value) {
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (source[mid] < value) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+            return from;
+        }
+    }
+}
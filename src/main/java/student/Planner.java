@@ -1,20 +1,83 @@
 package student;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 public class Planner implements IPlanner {
     /**
-     * Master list of all available games.
+     * A retained selection holding at most this fraction of the catalog is narrowed row by row
+     * rather than through the indexes.
      */
-    private final List<BoardGame> allGames;
+    private static final int INDEX_FRACTION = 16;
+
+    /**
+     * Default memory budget of the result cache, in bytes.
+     */
+    private static final long DEFAULT_CACHE_BUDGET = 32L << 20;
+
+    /**
+     * Pages ending within this fraction of the result are found with a bounded heap instead of
+     * sorting the whole result.
+     */
+    private static final int PAGE_FRACTION = 8;
+    /**
+     * Conditions estimated to keep at least this fraction of the rows together are checked row
+     * at a time by the compiled filter even in vectorized mode: when almost every row passes,
+     * short-circuiting beats compacting a selection vector per condition.
+     */
+    private static final double COMPILED_SELECTIVITY = 0.9;
+
+    /**
+     * Catalog of all available games. Replaced as a whole on reload, so each query reads it once.
+     */
+    private volatile Catalog catalog;
 
     /**
      * Active filter conditions.
      */
     private final List<FilterCondition> activeConditions = new ArrayList<>();
 
+    /**
+     * Catalog the retained rows belong to, or null when no rows are retained.
+     */
+    private Catalog selectionCatalog;
+
+    /**
+     * Rows matching the first appliedConditions conditions, in catalog order.
+     */
+    private int[] selection;
+
+    /**
+     * Number of rows in the selection.
+     */
+    private int selectionSize;
+
+    /**
+     * Number of active conditions the selection has been filtered by.
+     */
+    private int appliedConditions;
+
+    /**
+     * Sorted results of recent queries.
+     */
+    private final ResultCache results = new ResultCache(DEFAULT_CACHE_BUDGET);
+
+    /**
+     * Whether conditions are checked a block of rows at a time rather than row by row.
+     */
+    private boolean vectorized = true;
+
+    /**
+     * Pool that large queries are filtered and sorted on, or null to stay on the calling thread.
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
     /**
      * Current sorting field (default: NAME).
      */
@@ -31,7 +94,45 @@ public class Planner implements IPlanner {
      * @param games The original set of board games
      */
     public Planner(Set<BoardGame> games) {
-        this.allGames = new ArrayList<>(games);
+        this(new Catalog(games));
+    }
+
+    /**
+     * Initializes the planner with a catalog that is already built, such as one read from a
+     * snapshot.
+     *
+     * @param catalog The catalog of board games
+     */
+    public Planner(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Gets the catalog the planner currently searches.
+     *
+     * @return The current catalog
+     */
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Applies the changes from a reload to the catalog. Queries that are already running keep
+     * using the catalog they started with, and later queries see the new one. What was derived
+     * from the old catalog is patched rather than built again, and cached results that none of
+     * the changed games could affect stay in the result cache.
+     *
+     * @param delta The inserts, updates and deletes to apply
+     */
+    public synchronized void applyDelta(CatalogDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        Catalog current = catalog;
+        int[] rowMap = current.rowMap(delta);
+        Catalog next = current.apply(delta, rowMap);
+        results.patch(current, next, rowMap);
+        catalog = next;
     }
 
     /**
@@ -69,7 +170,101 @@ public class Planner implements IPlanner {
     public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
         parseFilterConditions(filter); // Parse and add new conditions
         updateSortParams(sortOn, ascending); // Update sorting parameters
-        return processFilteredGames(); // Apply filters and sorting
+        return processFilteredGames(0, Integer.MAX_VALUE); // Apply filters and sorting
+    }
+
+    /**
+     * Filters games like {@link #filter(String, GameData, boolean)}, but only returns one page
+     * of the sorted result. Only the rows up to the end of the page are put in order, with a
+     * bounded heap, so a short page of a large result costs O(n log k) rather than a full sort.
+     * A few pages beyond the requested one are kept in the result cache, so the next page is
+     * usually served from memory.
+     *
+     * @param filter    The filter string
+     * @param sortOn    The field to sort by
+     * @param ascending The sorting direction (true for ascending, false for descending)
+     * @param offset    The number of sorted games to skip
+     * @param limit     The maximum number of games to return
+     * @return A stream of at most limit games, starting at position offset of the sorted result
+     * @throws IllegalArgumentException If offset or limit is negative
+     */
+    public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending, int offset,
+            int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page: " + offset + ", " + limit);
+        }
+        parseFilterConditions(filter);
+        updateSortParams(sortOn, ascending);
+        return processFilteredGames(offset, limit);
+    }
+
+    /**
+     * Chooses how conditions are checked. In vectorized mode each condition works on a block of
+     * rows at a time, reading its column in one loop and keeping a vector of the rows that pass
+     * for the next condition, except for conditions estimated to keep almost every row. Those,
+     * and every condition when vectorized mode is off, go through a predicate compiled from all
+     * the conditions, one row at a time.
+     *
+     * @param vectorized true for block at a time evaluation, false for row at a time
+     */
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    /**
+     * Sets the pool that large queries run on. Filtering a catalog, or sorting a result, of at
+     * least {@value ParallelQuery#THRESHOLD} rows is split into chunks that run as tasks of the
+     * pool, and the results are joined up in order, so they are the same as on one thread.
+     * Smaller queries always run on the calling thread. The common pool is used by default.
+     *
+     * @param pool The pool to run large queries on, or null to run every query on the calling
+     *             thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the memory budget of the result cache. Sorted results of queries are kept, least
+     * recently used first out, while their estimated size fits in the budget, so a repeated
+     * query, or one with the same conditions in another order, is answered without filtering
+     * or sorting. Results are dropped when the catalog changes.
+     *
+     * @param bytes The maximum estimated bytes of cached results, 0 to cache nothing
+     */
+    public void setCacheBudget(long bytes) {
+        results.setBudget(bytes);
+    }
+
+    /**
+     * Gets the number of queries answered from the result cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getCacheHits() {
+        return results.hits();
+    }
+
+    /**
+     * Gets the number of queries that had to be filtered and sorted.
+     *
+     * @return The number of cache misses
+     */
+    public long getCacheMisses() {
+        return results.misses();
+    }
+
+    /**
+     * Adds the conditions of a filter string, like {@link #filter(String)}, and counts the
+     * games that match all active conditions. No games are created or sorted.
+     *
+     * @param filter The filter string
+     * @return The number of matching games
+     */
+    public int count(String filter) {
+        parseFilterConditions(filter);
+        narrowSelection(catalog);
+        return selectionSize;
     }
 
     /**
@@ -78,6 +273,7 @@ public class Planner implements IPlanner {
     @Override
     public void reset() {
         activeConditions.clear();
+        dropSelection();
         currentSortField = GameData.NAME;
         isAscending = true;
     }
@@ -140,14 +336,14 @@ public class Planner implements IPlanner {
      */
     private FilterCondition createCondition(ConditionComponents components) {
         GameData field = components.getField();
-        String operator = components.getOperator();
+        Operations operation = components.getOperation();
         String value = components.getValue();
 
         return switch (field) {
-            case NAME -> handleStringCondition(operator, value);
+            case NAME -> handleStringCondition(operation, value);
             case MIN_PLAYERS, MAX_PLAYERS, MIN_TIME, MAX_TIME, YEAR, RANK ->
-                    handleIntegerCondition(field, operator, value);
-            case RATING, DIFFICULTY -> handleDoubleCondition(field, operator, value);
+                    handleIntegerCondition(field, operation, value);
+            case RATING, DIFFICULTY -> handleDoubleCondition(field, operation, value);
             default -> throw new IllegalArgumentException("Invalid condition: " + field);
         };
     }
@@ -155,182 +351,303 @@ public class Planner implements IPlanner {
     /**
      * Handles conditions for text fields (e.g., name).
      *
-     * @param operator The operator
-     * @param value    The value to compare against
+     * @param operation The operation
+     * @param value     The value to compare against
      * @return A FilterCondition for text fields
-     * @throws IllegalArgumentException If the operator is invalid
-     */
-    private FilterCondition handleStringCondition(String operator, String value) {
-        return switch (operator) {
-            case "~=" -> game -> game.getName().toLowerCase().contains(value.toLowerCase());
-            case "=", "==" -> game -> game.getName().equalsIgnoreCase(value);
-            case "!=" -> game -> !game.getName().equalsIgnoreCase(value);
-            case ">" -> game -> game.getName().compareToIgnoreCase(value) > 0;
-            case "<" -> game -> game.getName().compareToIgnoreCase(value) < 0;
-            case ">=" -> game -> game.getName().compareToIgnoreCase(value) >= 0;
-            case "<=" -> game -> game.getName().compareToIgnoreCase(value) <= 0;
-            default -> throw new IllegalArgumentException("Invalid condition: " + operator);
-        };
+     */
+    private FilterCondition handleStringCondition(Operations operation, String value) {
+        return new NameCondition(operation, value);
     }
 
     /**
      * Handles conditions for integer fields.
      *
-     * @param field    The field to compare
-     * @param operator The operator
-     * @param value    The value to compare against
+     * @param field     The field to compare
+     * @param operation The operation
+     * @param value     The value to compare against
      * @return A FilterCondition for integer fields
-     * @throws IllegalArgumentException If the value is not a valid integer
+     * @throws IllegalArgumentException If the value is not a valid integer, or the operation
+     *                                  cannot compare numbers
      */
-    private FilterCondition handleIntegerCondition(GameData field, String operator, String value) {
+    private FilterCondition handleIntegerCondition(GameData field, Operations operation,
+            String value) {
         int target = Integer.parseInt(value);
-        return game -> {
-            int actualValue = getIntegerValue(game, field);
-            return compareNumbers(actualValue, operator, target);
-        };
+        return new NumericCondition(field, operation, target);
     }
 
     /**
-     * Retrieves the integer value for a specific field from a game.
+     * Handles conditions for double fields.
      *
-     * @param game  The board game
-     * @param field The field to retrieve
-     * @return The integer value of the field
-     * @throws IllegalArgumentException If the field is invalid
+     * @param field     The field to compare
+     * @param operation The operation
+     * @param value     The value to compare against
+     * @return A FilterCondition for double fields
+     * @throws IllegalArgumentException If the value is not a valid double, or the operation
+     *                                  cannot compare numbers
      */
-    private int getIntegerValue(BoardGame game, GameData field) {
-        return switch (field) {
-            case MAX_PLAYERS -> game.getMaxPlayers();
-            case MIN_PLAYERS -> game.getMinPlayers();
-            case MIN_TIME -> game.getMinPlayTime();
-            case MAX_TIME -> game.getMaxPlayTime();
-            case YEAR -> game.getYearPublished();
-            case RANK -> game.getRank();
-            default -> throw new IllegalArgumentException("Invalid condition: " + field);
-        };
+    private FilterCondition handleDoubleCondition(GameData field, Operations operation,
+            String value) {
+        double target = Double.parseDouble(value);
+        return new NumericCondition(field, operation, target);
     }
 
     /**
-     * Compares two numbers using the specified operator.
+     * Updates the current sorting parameters.
      *
-     * @param actual   The actual value
-     * @param operator The comparison operator
-     * @param target   The target value
-     * @return true if the condition is satisfied, false otherwise
-     * @throws IllegalArgumentException If the operator is invalid
-     */
-    private boolean compareNumbers(Number actual, String operator, Number target) {
-        double actualValue = actual.doubleValue();
-        double targetValue = target.doubleValue();
-
-        return switch (operator) {
-            case ">" -> actualValue > targetValue;
-            case "<" -> actualValue < targetValue;
-            case ">=" -> actualValue >= targetValue;
-            case "<=" -> actualValue <= targetValue;
-            case "=", "==" -> actualValue == targetValue;
-            case "!=" -> actualValue != targetValue;
-            default -> throw new IllegalArgumentException("Invalid condition: " + operator);
-        };
+     * @param sortOn    The field to sort by
+     * @param ascending The sorting direction
+     */
+    private void updateSortParams(GameData sortOn, boolean ascending) {
+        this.currentSortField = sortOn;
+        this.isAscending = ascending;
     }
 
     /**
-     * Handles conditions for double fields.
+     * Processes the filtered games by applying all active conditions, and returns a lazy stream
+     * of the sorted result. Filtering works on row numbers over the catalog columns and happens
+     * right away. The rows are only put in order, with the catalog's sort index for the field,
+     * when the stream reaches its first game, and each game is only created when the stream
+     * reaches it, so a stream that is only counted costs neither. Sorted rows are taken from
+     * the result cache when the same query has been answered before.
      *
-     * @param field    The field to compare
-     * @param operator The operator
-     * @param value    The value to compare against
-     * @return A FilterCondition for double fields
-     * @throws IllegalArgumentException If the value is not a valid double
+     * @param offset The number of sorted games to skip
+     * @param limit  The maximum number of games to return
+     * @return A stream of filtered and sorted games
      */
-    private FilterCondition handleDoubleCondition(GameData field, String operator, String value) {
-        double target = Double.parseDouble(value);
-        return game -> {
-            double actualValue = getDoubleValue(game, field);
-            return compareNumbers(actualValue, operator, target);
-        };
+    private Stream<BoardGame> processFilteredGames(int offset, int limit) {
+        Catalog current = catalog;
+        int need = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        String key = ResultCache.key(activeConditions, currentSortField, isAscending);
+        int[] cached = key == null ? null : results.get(current, key, need);
+        Supplier<int[]> sort;
+        int end;
+        if (cached != null) {
+            sort = () -> cached;
+            end = Math.min(cached.length, need);
+        } else {
+            narrowSelection(current);
+            sort = sortLater(current, key, Arrays.copyOf(selection, selectionSize), need);
+            end = Math.min(selectionSize, need);
+        }
+        return StreamSupport.stream(new GameSpliterator(current, sort, currentSortField,
+                isAscending, Math.min(offset, end), end), false);
     }
 
     /**
-     * Retrieves the double value for a specific field from a game.
+     * Prepares the sort of a query result, to run when the result is first read. The whole
+     * result is sorted, unless only a small part of it is needed: then the rows up to twice
+     * that part are selected with a bounded heap, so the next page of the same size can be
+     * cached too. The sorted rows are put in the result cache.
      *
-     * @param game  The board game
-     * @param field The field to retrieve
-     * @return The double value of the field
-     * @throws IllegalArgumentException If the field is invalid
+     * @param current The catalog the rows belong to
+     * @param key     The key of the query in the result cache, or null to not cache it
+     * @param matches The rows of the result, in catalog order
+     * @param need    The number of leading rows needed
+     * @return Sorts the rows when called
      */
-    private double getDoubleValue(BoardGame game, GameData field) {
-        return switch (field) {
-            case RATING -> game.getRating();
-            case DIFFICULTY -> game.getDifficulty();
-            default -> throw new IllegalArgumentException("Invalid condition: " + field);
+    private Supplier<int[]> sortLater(Catalog current, String key, int[] matches, int need) {
+        List<FilterCondition> conditions = List.copyOf(activeConditions);
+        GameData sortOn = currentSortField;
+        boolean ascending = isAscending;
+        ForkJoinPool sortPool = pool;
+        return () -> {
+            SortIndex index = current.sortIndex(sortOn);
+            int count = matches.length;
+            int[] rows = need > count / PAGE_FRACTION
+                    ? index.sort(matches, count, ascending, sortPool)
+                    : index.first(matches, count, ascending, 2 * need);
+            if (key != null) {
+                results.put(current, key, conditions, rows, rows.length == count);
+            }
+            return rows;
         };
     }
 
     /**
-     * Updates the current sorting parameters.
+     * Brings the retained rows up to date with the active conditions. Since filters are
+     * progressive, conditions added since the last query only need to be checked against the
+     * rows that matched then. The whole catalog is scanned again when there is no selection
+     * yet, or when the catalog has been replaced since it was made.
      *
-     * @param sortOn    The field to sort by
-     * @param ascending The sorting direction
+     * @param current The catalog to filter
      */
-    private void updateSortParams(GameData sortOn, boolean ascending) {
-        this.currentSortField = sortOn;
-        this.isAscending = ascending;
+    private void narrowSelection(Catalog current) {
+        if (selectionCatalog != current) {
+            dropSelection();
+        }
+        List<FilterCondition> added = bySelectivity(current,
+                activeConditions.subList(appliedConditions, activeConditions.size()));
+        if (selection == null
+                || (!added.isEmpty() && selectionSize > current.size() / INDEX_FRACTION)) {
+            selectRows(current, added);
+        } else if (!added.isEmpty()) {
+            selectionSize = filterRows(current, added, selection, selectionSize);
+        }
+        selectionCatalog = current;
+        appliedConditions = activeConditions.size();
     }
 
     /**
-     * Processes the filtered games by applying all active conditions and sorting.
+     * Selects the rows that meet the conditions, starting from the retained selection if there
+     * is one. Conditions that can be answered by the sort indexes each produce a bitmap of rows,
+     * and the bitmaps are intersected; only the rows left over are checked against the
+     * remaining conditions. With no such condition, every row is checked.
      *
-     * @return A stream of filtered and sorted games
+     * @param current    The catalog to filter
+     * @param conditions The conditions to check
      */
-    private Stream<BoardGame> processFilteredGames() {
-        List<BoardGame> filteredGames = new ArrayList<>();
-        for (BoardGame game : allGames) {
-            if (meetAllConditions(game)) {
-                filteredGames.add(game);
+    private void selectRows(Catalog current, List<FilterCondition> conditions) {
+        RowBitmap matches =
+                selection == null ? null : RowBitmap.of(current.size(), selection, 0, selectionSize);
+        List<FilterCondition> rest = new ArrayList<>();
+        for (FilterCondition condition : conditions) {
+            if (matches != null && matches.isEmpty()) {
+                break;
+            }
+            RowBitmap rows = condition.bitmap(current);
+            if (rows == null) {
+                rest.add(condition);
+            } else {
+                matches = matches == null ? rows : matches.and(rows);
             }
         }
+        if (matches == null) {
+            selection = new int[current.size()];
+            selectionSize = scanRows(current, rest, selection);
+        } else {
+            selection = matches.toArray();
+            selectionSize = filterRows(current, rest, selection, selection.length);
+        }
+    }
 
-        Comparator<BoardGame> comparator = buildComparator();
-        filteredGames.sort(comparator);
+    /**
+     * Checks every row of the catalog against the conditions.
+     *
+     * @param current    The catalog to filter
+     * @param conditions The conditions, in the order to check them
+     * @param out        Array to write the matching rows to, with room for every row
+     * @return The number of matching rows, in catalog order at the start of out
+     */
+    private int scanRows(Catalog current, List<FilterCondition> conditions, int[] out) {
+        IntBinaryOperator scan;
+        if (batched(current, conditions)) {
+            BatchFilter[] filters = BatchScan.bind(current, conditions);
+            scan = (from, to) -> BatchScan.scan(filters, from, to, out);
+        } else {
+            IntPredicate filter = CompiledFilter.of(current, conditions);
+            scan = (from, to) -> {
+                int count = 0;
+                for (int row = from; row < to; row++) {
+                    if (filter.test(row)) {
+                        out[from + count++] = row;
+                    }
+                }
+                return count;
+            };
+        }
+        int size = current.size();
+        if (ParallelQuery.worthIt(pool, size)) {
+            return ParallelQuery.filter(pool, size, out, scan);
+        }
+        return scan.applyAsInt(0, size);
+    }
 
-        return filteredGames.stream();
+    /**
+     * Narrows a list of rows in place to those that meet the conditions.
+     *
+     * @param current    The catalog the rows belong to
+     * @param conditions The conditions, in the order to check them
+     * @param rows       The rows, overwritten with the matching rows
+     * @param size       The number of rows at the start of the array
+     * @return The number of matching rows, in their original order at the start of rows
+     */
+    private int filterRows(Catalog current, List<FilterCondition> conditions, int[] rows,
+            int size) {
+        if (conditions.isEmpty()) {
+            return size;
+        }
+        IntBinaryOperator narrow;
+        if (batched(current, conditions)) {
+            BatchFilter[] filters = BatchScan.bind(current, conditions);
+            narrow = (from, to) -> BatchScan.filter(filters, rows, from, to);
+        } else {
+            IntPredicate filter = CompiledFilter.of(current, conditions);
+            narrow = (from, to) -> {
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    if (filter.test(row)) {
+                        rows[from + count++] = row;
+                    }
+                }
+                return count;
+            };
+        }
+        if (ParallelQuery.worthIt(pool, size)) {
+            return ParallelQuery.filter(pool, size, rows, narrow);
+        }
+        return narrow.applyAsInt(0, size);
     }
 
     /**
-     * Builds a comparator based on the current sorting field and direction.
+     * Checks if conditions are evaluated a block of rows at a time. In vectorized mode they are,
+     * unless together they are estimated to keep most of the rows; then the compiled filter is
+     * used, as it is when vectorized mode is off.
      *
-     * @return A comparator for sorting games
-     * @throws IllegalArgumentException If the sorting field is invalid
-     */
-    private Comparator<BoardGame> buildComparator() {
-        Comparator<BoardGame> comparator = switch (currentSortField) {
-            case NAME -> Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
-            case MIN_PLAYERS -> Comparator.comparing(BoardGame::getMinPlayers);
-            case MAX_PLAYERS -> Comparator.comparing(BoardGame::getMaxPlayers);
-            case MIN_TIME -> Comparator.comparing(BoardGame::getMinPlayTime);
-            case MAX_TIME -> Comparator.comparing(BoardGame::getMaxPlayTime);
-            case YEAR -> Comparator.comparing(BoardGame::getYearPublished);
-            case RANK -> Comparator.comparing(BoardGame::getRank);
-            case RATING -> Comparator.comparing(BoardGame::getRating);
-            case DIFFICULTY -> Comparator.comparing(BoardGame::getDifficulty);
-            default -> throw new IllegalArgumentException("Invalid sort field: " + currentSortField);
-        };
-        return isAscending ? comparator : comparator.reversed();
+     * @param current    The catalog the conditions are checked against
+     * @param conditions The conditions to check
+     * @return true for block at a time evaluation, false for the compiled filter
+     */
+    private boolean batched(Catalog current, List<FilterCondition> conditions) {
+        if (!vectorized) {
+            return false;
+        }
+        double kept = 1;
+        for (FilterCondition condition : conditions) {
+            kept *= condition.selectivity(current);
+        }
+        return kept < COMPILED_SELECTIVITY;
     }
 
     /**
-     * Checks if a game meets all active filter conditions.
+     * Orders conditions so the ones expected to reject the most rows for the least work are
+     * checked first. Each condition is ranked by its estimated selectivity, from the catalog's
+     * histograms, times its cost per row; ties keep the order the conditions were given in.
      *
-     * @param game The board game to check
-     * @return true if all conditions are satisfied, false otherwise
+     * @param current    The catalog the conditions are checked against
+     * @param conditions The conditions, in the order they were added
+     * @return The conditions in the order to check them
      */
-    private boolean meetAllConditions(BoardGame game) {
-        for (FilterCondition condition : activeConditions) {
-            if (!condition.check(game)) {
-                return false;
+    private List<FilterCondition> bySelectivity(Catalog current,
+            List<FilterCondition> conditions) {
+        int n = conditions.size();
+        FilterCondition[] ordered = conditions.toArray(new FilterCondition[0]);
+        double[] score = new double[n];
+        for (int i = 0; i < n; i++) {
+            score[i] = ordered[i].selectivity(current) * ordered[i].cost();
+        }
+        for (int i = 1; i < n; i++) {
+            FilterCondition condition = ordered[i];
+            double key = score[i];
+            int j = i - 1;
+            while (j >= 0 && score[j] > key) {
+                ordered[j + 1] = ordered[j];
+                score[j + 1] = score[j];
+                j--;
             }
+            ordered[j + 1] = condition;
+            score[j + 1] = key;
         }
-        return true;
+        return Arrays.asList(ordered);
+    }
+
+    /**
+     * Forgets the retained rows, so the next query scans the whole catalog.
+     */
+    private void dropSelection() {
+        selectionCatalog = null;
+        selection = null;
+        selectionSize = 0;
+        appliedConditions = 0;
     }
 }
@@ -0,0 +1,289 @@
+package student;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Least recently used cache of sorted query results, bounded by an estimate of its memory use.
+ *
+ * A result is the list of catalog rows in sorted order, so it costs four bytes a row and no game
+ * is kept alive by it. A paged query may cache only the first rows of its result; that serves
+ * any later page that ends within those rows. Results are keyed by the set of normalized
+ * condition texts, which makes the order the conditions were given in and repeats of a
+ * condition irrelevant, together with the sort field and direction. Every result belongs to one
+ * catalog: when a delta is applied to it, results that none of the changed rows could affect
+ * are carried over to the new catalog, and looking up a result for any other catalog empties
+ * the cache. Results may be added by the thread that reads a stream, so every method is
+ * synchronized.
+ */
+final class ResultCache {
+    /** Estimated bytes of an entry besides its rows and key text. */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    /** Cached rows by key, least recently used first. */
+    private final LinkedHashMap<String, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+    /** Maximum estimated bytes of all entries. */
+    private long budget;
+    /** Estimated bytes of all entries. */
+    private long used;
+    /** Catalog the cached results belong to. */
+    private Catalog catalog;
+    /** Number of lookups that found a result. */
+    private long hits;
+    /** Number of lookups that found none. */
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param budget maximum estimated bytes of all entries, 0 to cache nothing
+     */
+    ResultCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Get the key of a query.
+     *
+     * @param conditions the active conditions
+     * @param sortOn     the field to sort by
+     * @param ascending  the sorting direction
+     * @return the key, or null if a condition has no normalized text
+     */
+    static String key(List<FilterCondition> conditions, GameData sortOn, boolean ascending) {
+        TreeSet<String> texts = new TreeSet<>();
+        for (FilterCondition condition : conditions) {
+            String text = condition.normalized();
+            if (text == null) {
+                return null;
+            }
+            texts.add(text);
+        }
+        StringJoiner key = new StringJoiner(",", "", "|" + sortOn + (ascending ? "+" : "-"));
+        texts.forEach(key::add);
+        return key.toString();
+    }
+
+    /**
+     * Looks up a result, counting the hit or miss.
+     *
+     * @param current the catalog the query runs against
+     * @param key     the key of the query
+     * @param need    number of leading rows the query needs
+     * @return the rows in sorted order, all of them or at least the first need, or null if they
+     *         are not cached
+     */
+    synchronized int[] get(Catalog current, String key, int need) {
+        if (catalog != current) {
+            clear();
+            catalog = current;
+        }
+        Result result = results.get(key);
+        if (result == null || (!result.complete && result.rows.length < need)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return result.rows;
+    }
+
+    /**
+     * Caches a result, evicting the least recently used results until it fits in the budget.
+     * Results of another catalog than the last lookup, and results bigger than the whole budget,
+     * are not cached.
+     *
+     * @param current    the catalog the query ran against
+     * @param key        the key of the query
+     * @param conditions the conditions of the query
+     * @param rows       the rows in sorted order, not to be changed afterwards
+     * @param complete   true if rows is the whole result, false if only its first rows
+     */
+    synchronized void put(Catalog current, String key, List<FilterCondition> conditions,
+            int[] rows, boolean complete) {
+        long size = size(key, rows);
+        if (catalog != current || size > budget) {
+            return;
+        }
+        Result old = results.put(key, new Result(List.copyOf(conditions), rows, complete));
+        used += size - (old == null ? 0 : size(key, old.rows));
+        evict();
+    }
+
+    /**
+     * Carries the results over to the catalog made by applying a delta. A result is dropped if
+     * one of its rows is dropped by the delta, or if one of the rows added by the delta meets
+     * its conditions; otherwise no row in or out of it changed, and only its row numbers are
+     * mapped to the new catalog, which keeps their order.
+     *
+     * @param previous the catalog the delta was applied to
+     * @param next     the new catalog
+     * @param rowMap   row in the new catalog of each row of the old one, -1 for dropped rows
+     */
+    synchronized void patch(Catalog previous, Catalog next, int[] rowMap) {
+        if (catalog != previous) {
+            clear();
+            catalog = next;
+            return;
+        }
+        int kept = 0;
+        for (int row = rowMap.length - 1; row >= 0 && kept == 0; row--) {
+            kept = rowMap[row] + 1;
+        }
+        Iterator<Map.Entry<String, Result>> entries = results.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Result> entry = entries.next();
+            int[] rows = entry.getValue().map(rowMap);
+            if (rows == null || entry.getValue().gains(next, kept)) {
+                used -= size(entry.getKey(), entry.getValue().rows);
+                entries.remove();
+            } else {
+                entry.setValue(new Result(entry.getValue().conditions, rows,
+                        entry.getValue().complete));
+            }
+        }
+        catalog = next;
+    }
+
+    /**
+     * Changes the memory budget, evicting results that no longer fit.
+     *
+     * @param bytes maximum estimated bytes of all entries, 0 to cache nothing
+     */
+    synchronized void setBudget(long bytes) {
+        budget = bytes;
+        evict();
+    }
+
+    /**
+     * Removes every result.
+     */
+    synchronized void clear() {
+        results.clear();
+        used = 0;
+    }
+
+    /**
+     * Get the number of lookups that found a result.
+     *
+     * @return the number of hits
+     */
+    synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that found no result.
+     *
+     * @return the number of misses
+     */
+    synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of cached results.
+     *
+     * @return the number of entries
+     */
+    synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * Get the estimated bytes of all cached results.
+     *
+     * @return the bytes in use
+     */
+    synchronized long used() {
+        return used;
+    }
+
+    /**
+     * Evicts the least recently used results until the rest fit in the budget.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Result>> eldest = results.entrySet().iterator();
+        while (used > budget && eldest.hasNext()) {
+            Map.Entry<String, Result> entry = eldest.next();
+            used -= size(entry.getKey(), entry.getValue().rows);
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Estimates the memory used by an entry.
+     *
+     * @param key  the key of the entry
+     * @param rows the rows of the entry
+     * @return the estimated bytes
+     */
+    private static long size(String key, int[] rows) {
+        return ENTRY_OVERHEAD + 2L * key.length() + (long) Integer.BYTES * rows.length;
+    }
+
+    /** Rows of a cached result. */
+    private static final class Result {
+        /** The conditions of the query. */
+        private final List<FilterCondition> conditions;
+        /** The rows in sorted order. */
+        private final int[] rows;
+        /** True if the rows are the whole result, false if only its first rows. */
+        private final boolean complete;
+
+        /**
+         * Creates a result.
+         *
+         * @param conditions the conditions of the query
+         * @param rows       the rows in sorted order
+         * @param complete   true if the rows are the whole result
+         */
+        Result(List<FilterCondition> conditions, int[] rows, boolean complete) {
+            this.conditions = conditions;
+            this.rows = rows;
+            this.complete = complete;
+        }
+
+        /**
+         * Maps the rows to the catalog made by applying a delta.
+         *
+         * @param rowMap row in the new catalog of each old row, -1 for dropped rows
+         * @return the rows in the new catalog, in the same order, or null if one was dropped
+         */
+        int[] map(int[] rowMap) {
+            int[] mapped = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                mapped[i] = rowMap[rows[i]];
+                if (mapped[i] < 0) {
+                    return null;
+                }
+            }
+            return mapped;
+        }
+
+        /**
+         * Checks if a row added by a delta meets the conditions of the query.
+         *
+         * @param next  the new catalog
+         * @param added the first added row; the rows from here on are new
+         * @return true if an added row belongs in the result
+         */
+        boolean gains(Catalog next, int added) {
+            IntPredicate[] tests = new IntPredicate[conditions.size()];
+            for (int i = 0; i < tests.length; i++) {
+                tests[i] = conditions.get(i).bind(next);
+            }
+            IntPredicate test = CompiledFilter.chain(tests);
+            for (int row = added; row < next.size(); row++) {
+                if (test.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
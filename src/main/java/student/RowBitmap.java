@@ -0,0 +1,270 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of catalog rows, stored as a compressed bitmap.
+ *
+ * Rows are grouped into 64 bit words and only the words with at least one row in them are kept,
+ * together with their word index. Sparse sets therefore cost a few words, and dense sets about
+ * one bit per row. Set operations merge the two word lists and work a whole word at a time, and
+ * the cardinality is a sum of bit counts, so no operation lists the rows one by one.
+ */
+final class RowBitmap {
+    /** The empty set. */
+    private static final RowBitmap EMPTY = new RowBitmap(new int[0], new long[0], 0);
+
+    /** Index of each stored word, ascending. */
+    private final int[] keys;
+    /** The stored words, never zero. */
+    private final long[] words;
+    /** Number of stored words. */
+    private final int length;
+
+    /**
+     * Creates a bitmap.
+     *
+     * @param keys   index of each stored word, ascending
+     * @param words  the stored words, never zero
+     * @param length number of stored words
+     */
+    private RowBitmap(int[] keys, long[] words, int length) {
+        this.keys = keys;
+        this.words = words;
+        this.length = length;
+    }
+
+    /**
+     * Builds the set of every row of a catalog.
+     *
+     * @param size number of rows in the catalog
+     * @return the set of rows [0, size)
+     */
+    static RowBitmap all(int size) {
+        long[] dense = new long[wordsFor(size)];
+        Arrays.fill(dense, -1L);
+        if (size % Long.SIZE != 0) {
+            dense[dense.length - 1] = -1L >>> (Long.SIZE - size % Long.SIZE);
+        }
+        return compress(dense);
+    }
+
+    /**
+     * Builds the set of some rows of a catalog.
+     *
+     * A slice with fewer rows than the catalog has words, such as a narrow range of a sort index,
+     * is sorted on its own and packed into words directly, so its cost does not depend on the
+     * size of the catalog. Larger slices are set in a dense bitmap that is then compressed.
+     *
+     * @param size number of rows in the catalog
+     * @param rows array holding the rows, in any order
+     * @param from index of the first row in the array
+     * @param to   one past the index of the last row in the array
+     * @return the set of rows
+     */
+    static RowBitmap of(int size, int[] rows, int from, int to) {
+        if (from >= to) {
+            return EMPTY;
+        }
+        if (to - from > wordsFor(size)) {
+            long[] dense = new long[wordsFor(size)];
+            for (int i = from; i < to; i++) {
+                dense[rows[i] >>> 6] |= 1L << rows[i];
+            }
+            return compress(dense);
+        }
+        int[] sorted = rows;
+        int start = from;
+        int end = to;
+        if (!ascending(rows, from, to)) {
+            sorted = Arrays.copyOfRange(rows, from, to);
+            Arrays.sort(sorted);
+            start = 0;
+            end = sorted.length;
+        }
+        int[] keys = new int[end - start];
+        long[] words = new long[keys.length];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            int key = sorted[i] >>> 6;
+            if (n == 0 || keys[n - 1] != key) {
+                keys[n++] = key;
+            }
+            words[n - 1] |= 1L << sorted[i];
+        }
+        return new RowBitmap(keys, words, n);
+    }
+
+    /**
+     * Get the number of rows in the set.
+     *
+     * @return the cardinality
+     */
+    int cardinality() {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Check if the set has no rows.
+     *
+     * @return true if the set is empty
+     */
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Intersects this set with another.
+     *
+     * @param other the other set
+     * @return the rows in both sets
+     */
+    RowBitmap and(RowBitmap other) {
+        int[] outKeys = new int[Math.min(length, other.length)];
+        long[] outWords = new long[outKeys.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < length && j < other.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long word = words[i++] & other.words[j++];
+                if (word != 0) {
+                    outKeys[n] = keys[i - 1];
+                    outWords[n++] = word;
+                }
+            }
+        }
+        return new RowBitmap(outKeys, outWords, n);
+    }
+
+    /**
+     * Unites this set with another.
+     *
+     * @param other the other set
+     * @return the rows in either set
+     */
+    RowBitmap or(RowBitmap other) {
+        int[] outKeys = new int[length + other.length];
+        long[] outWords = new long[outKeys.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < length || j < other.length) {
+            if (j >= other.length || (i < length && keys[i] < other.keys[j])) {
+                outKeys[n] = keys[i];
+                outWords[n++] = words[i++];
+            } else if (i >= length || keys[i] > other.keys[j]) {
+                outKeys[n] = other.keys[j];
+                outWords[n++] = other.words[j++];
+            } else {
+                outKeys[n] = keys[i];
+                outWords[n++] = words[i++] | other.words[j++];
+            }
+        }
+        return new RowBitmap(outKeys, outWords, n);
+    }
+
+    /**
+     * Removes the rows of another set from this one.
+     *
+     * @param other the rows to remove
+     * @return the rows in this set but not in the other
+     */
+    RowBitmap andNot(RowBitmap other) {
+        int[] outKeys = new int[length];
+        long[] outWords = new long[length];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            while (j < other.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            long word = words[i];
+            if (j < other.length && other.keys[j] == keys[i]) {
+                word &= ~other.words[j];
+            }
+            if (word != 0) {
+                outKeys[n] = keys[i];
+                outWords[n++] = word;
+            }
+        }
+        return new RowBitmap(outKeys, outWords, n);
+    }
+
+    /**
+     * Lists the rows in the set.
+     *
+     * @return a new array of the rows, in ascending order
+     */
+    int[] toArray() {
+        int[] rows = new int[cardinality()];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            int base = keys[i] << 6;
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                rows[n++] = base + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Check if a slice of rows is in ascending order, as a retained selection is.
+     *
+     * @param rows array holding the rows
+     * @param from index of the first row in the array
+     * @param to   one past the index of the last row in the array
+     * @return true if no row is smaller than the one before it
+     */
+    private static boolean ascending(int[] rows, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (rows[i] < rows[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of words needed for a number of rows.
+     *
+     * @param size number of rows
+     * @return number of 64 bit words
+     */
+    private static int wordsFor(int size) {
+        return (size + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Compresses a dense bitmap by dropping its zero words.
+     *
+     * @param dense one word per 64 rows
+     * @return the compressed bitmap
+     */
+    private static RowBitmap compress(long[] dense) {
+        int length = 0;
+        for (long word : dense) {
+            if (word != 0) {
+                length++;
+            }
+        }
+        int[] keys = new int[length];
+        long[] words = new long[length];
+        int n = 0;
+        for (int key = 0; key < dense.length; key++) {
+            if (dense[key] != 0) {
+                keys[n] = key;
+                words[n++] = dense[key];
+            }
+        }
+        return new RowBitmap(keys, words, length);
+    }
+}
@@ -0,0 +1,109 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * Decoder for the data rows of one csv file, compiled once from its header.
+ *
+ * The decoder keeps the index of every {@link GameData} column in a plain array, and knows the
+ * last column it needs, so rows only have to be tokenized up to that column. All of the other
+ * columns in a BGG export (comments, versions, and so on) are skipped.
+ */
+final class RowDecoder {
+    /** Csv column index of each GameData value, indexed by ordinal. */
+    private final int[] columns;
+    /** Highest column index the decoder reads. */
+    private final int maxColumn;
+
+    /**
+     * Creates a decoder from the column indexes.
+     *
+     * @param columns csv column index of each GameData value, indexed by ordinal
+     */
+    private RowDecoder(int[] columns) {
+        this.columns = columns;
+        this.maxColumn = Arrays.stream(columns).max().orElse(0);
+    }
+
+    /**
+     * Compiles a decoder from the header row of a file.
+     *
+     * It is common to do this for csv files as the columns can be in any order.
+     * This makes it order independent by taking a moment to link the columns
+     * with their actual index in the file.
+     *
+     * @param header the reader positioned on the header row
+     * @return a decoder for the rows that follow the header
+     * @throws IllegalArgumentException if one of the GameData columns is missing
+     */
+    static RowDecoder fromHeader(CsvReader header) {
+        int[] columns = new int[GameData.values().length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.fieldCount(); i++) {
+            try {
+                GameData col = GameData.fromColumnName(header.string(i));
+                columns[col.ordinal()] = i;
+            } catch (IllegalArgumentException e) {
+                // not a column we use
+            }
+        }
+        for (GameData col : GameData.values()) {
+            if (columns[col.ordinal()] < 0) {
+                throw new IllegalArgumentException("Missing column: " + col.getColumnName());
+            }
+        }
+        return new RowDecoder(columns);
+    }
+
+    /**
+     * Get the number of leading fields of a row the decoder needs.
+     *
+     * @return number of fields to tokenize
+     */
+    int fieldsNeeded() {
+        return maxColumn + 1;
+    }
+
+    /**
+     * Converts the current row of the reader into a BoardGame object.
+     *
+     * @param row    the reader positioned on the row, tokenized to at least
+     *               {@link #fieldsNeeded()}
+     * @param report where to count the row as accepted or skipped
+     * @return a BoardGame object, or null if the row is too short or has a bad number in it
+     */
+    BoardGame decode(CsvReader row, LoadReport report) {
+        if (row.fieldCount() <= maxColumn) {
+            report.skipped(LoadReport.SkipReason.SHORT_ROW);
+            return null;
+        }
+        try {
+            BoardGame game = new BoardGame(row.string(column(GameData.NAME)),
+                    row.parseInt(column(GameData.ID)),
+                    row.parseInt(column(GameData.MIN_PLAYERS)),
+                    row.parseInt(column(GameData.MAX_PLAYERS)),
+                    row.parseInt(column(GameData.MIN_TIME)),
+                    row.parseInt(column(GameData.MAX_TIME)),
+                    row.parseDouble(column(GameData.DIFFICULTY)),
+                    row.parseInt(column(GameData.RANK)),
+                    row.parseDouble(column(GameData.RATING)),
+                    row.parseInt(column(GameData.YEAR)));
+            report.accepted();
+            return game;
+        } catch (NumberFormatException e) {
+            // skip if there is an issue
+            report.skipped(LoadReport.SkipReason.NUMBER_FORMAT);
+            return null;
+        }
+    }
+
+    /**
+     * Get the csv column index of a field.
+     *
+     * @param col the field
+     * @return its index in the row
+     */
+    private int column(GameData col) {
+        return columns[col.ordinal()];
+    }
+}
@@ -0,0 +1,92 @@
+package student;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Stable sort of catalog row numbers.
+ *
+ * Rows are compared through an {@link IntBinaryOperator} that reads the catalog columns, so
+ * sorting never creates a game or boxes a value. Rows that compare equal keep their order.
+ */
+final class RowSorter {
+    /** Runs up to this length are sorted by insertion before merging. */
+    private static final int RUN = 32;
+
+    /** private constructor to prevent instantiation. */
+    private RowSorter() {
+    }
+
+    /**
+     * Sorts the first rows of an array.
+     *
+     * @param rows  the rows to sort
+     * @param count number of rows at the start of the array to sort
+     * @param order compares two rows, negative if the first sorts before the second
+     */
+    static void sort(int[] rows, int count, IntBinaryOperator order) {
+        for (int from = 0; from < count; from += RUN) {
+            insertionSort(rows, from, Math.min(from + RUN, count), order);
+        }
+        if (count <= RUN) {
+            return;
+        }
+        int[] src = rows;
+        int[] dst = new int[count];
+        for (int width = RUN; width < count; width *= 2) {
+            for (int from = 0; from < count; from += 2 * width) {
+                int mid = Math.min(from + width, count);
+                int to = Math.min(from + 2 * width, count);
+                merge(src, dst, from, mid, to, order);
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        if (src != rows) {
+            System.arraycopy(src, 0, rows, 0, count);
+        }
+    }
+
+    /**
+     * Sorts a short range by insertion.
+     *
+     * @param rows  the rows
+     * @param from  first index of the range
+     * @param to    one past the last index of the range
+     * @param order compares two rows
+     */
+    private static void insertionSort(int[] rows, int from, int to, IntBinaryOperator order) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && order.applyAsInt(rows[j], row) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    /**
+     * Merges two sorted neighbouring ranges, taking from the left range on ties.
+     *
+     * @param src   holds the ranges [from, mid) and [mid, to)
+     * @param dst   receives the merged range [from, to)
+     * @param from  first index of the left range
+     * @param mid   first index of the right range
+     * @param to    one past the last index of the right range
+     * @param order compares two rows
+     */
+    private static void merge(int[] src, int[] dst, int from, int mid, int to,
+            IntBinaryOperator order) {
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && order.applyAsInt(src[left], src[right]) <= 0)) {
+                dst[i] = src[left++];
+            } else {
+                dst[i] = src[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package student;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Rows of a catalog pre-sorted on one field.
+ *
+ * The index holds the rows in ascending order of the field, with equal values in row order, and
+ * the dense rank of every row's value, where equal values share a rank. Sorting a query result is
+ * then either a walk of the order, for a broad result, or a primitive sort of packed
+ * (rank, row) keys, for a narrow one. Neither compares two games.
+ *
+ * The order also serves as a secondary index for filtering: a comparison on the field matches a
+ * contiguous range of the order, found by binary search, so a selective condition only has to
+ * look at the rows in that range.
+ *
+ * When a delta is applied to the catalog, the index is patched instead of built again: the rows
+ * carried over are already in order, so only the new rows are sorted and merged in.
+ */
+final class SortIndex {
+    /** Results larger than this fraction of the catalog are sorted by walking the order. */
+    private static final int WALK_FRACTION = 16;
+
+    /** Rows in ascending order of the field. */
+    private final int[] order;
+    /** Dense rank of each row's value. */
+    private final int[] rank;
+    /** Value of the field for a row, null for names. */
+    private final IntToDoubleFunction value;
+    /** Number of leading positions in the order whose value is a number, not NaN. */
+    private final int comparable;
+
+    /**
+     * Creates an index.
+     *
+     * @param order rows in ascending order of the field
+     * @param rank  dense rank of each row's value
+     * @param value value of the field for a row, null for names
+     */
+    private SortIndex(int[] order, int[] rank, IntToDoubleFunction value) {
+        this.order = order;
+        this.rank = rank;
+        this.value = value;
+        int end = order.length;
+        while (value != null && end > 0 && Double.isNaN(value.applyAsDouble(order[end - 1]))) {
+            end--;
+        }
+        this.comparable = end;
+    }
+
+    /**
+     * Builds the index of a field.
+     *
+     * @param catalog the catalog to index
+     * @param field   the field to sort on
+     * @return the index
+     * @throws IllegalArgumentException if the field cannot be sorted on
+     */
+    static SortIndex build(Catalog catalog, GameData field) {
+        int size = catalog.size();
+        int[] rank = nameRanks(catalog, field);
+        IntToDoubleFunction value = values(catalog, field);
+        IntBinaryOperator compare = comparator(rank, value);
+        int[] order = new int[size];
+        Arrays.setAll(order, row -> row);
+        RowSorter.sort(order, size, compare);
+        return finish(order, rank, value, compare);
+    }
+
+    /**
+     * Builds the index of a catalog made by applying a delta to the catalog of this index. The
+     * rows carried over keep their order, with their new row numbers, and the rows added by the
+     * delta are sorted on their own and merged in after the old rows with equal values, so the
+     * result is the same as building the index of the new catalog.
+     *
+     * @param next   the new catalog
+     * @param field  the field of this index
+     * @param rowMap row in the new catalog of each row of the old one, -1 for dropped rows
+     * @param kept   number of rows carried over; the rows after them in next are new
+     * @return the index of the new catalog
+     */
+    SortIndex patch(Catalog next, GameData field, int[] rowMap, int kept) {
+        int size = next.size();
+        int[] rank = nameRanks(next, field);
+        IntToDoubleFunction nextValue = values(next, field);
+        IntBinaryOperator compare = comparator(rank, nextValue);
+        int[] added = new int[size - kept];
+        Arrays.setAll(added, i -> kept + i);
+        RowSorter.sort(added, added.length, compare);
+        int[] merged = new int[size];
+        int at = 0;
+        int j = 0;
+        for (int old : order) {
+            int row = rowMap[old];
+            if (row < 0) {
+                continue;
+            }
+            while (j < added.length && compare.applyAsInt(added[j], row) < 0) {
+                merged[at++] = added[j++];
+            }
+            merged[at++] = row;
+        }
+        while (j < added.length) {
+            merged[at++] = added[j++];
+        }
+        return finish(merged, rank, nextValue, compare);
+    }
+
+    /**
+     * Get the ranks of the name index, the collation keys of the rows' names.
+     *
+     * @param catalog the catalog to index
+     * @param field   the field to sort on
+     * @return the rank of each row for names, or an array to fill in for other fields
+     */
+    private static int[] nameRanks(Catalog catalog, GameData field) {
+        int size = catalog.size();
+        int[] rank = new int[size];
+        if (field == GameData.NAME) {
+            NameDictionary names = catalog.names();
+            for (int row = 0; row < size; row++) {
+                rank[row] = names.collationKey(catalog.nameId(row));
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Get the value of a numeric field for a row.
+     *
+     * @param catalog the catalog to index
+     * @param field   the field to sort on
+     * @return the value of a row, null for names
+     * @throws IllegalArgumentException if the field cannot be sorted on
+     */
+    private static IntToDoubleFunction values(Catalog catalog, GameData field) {
+        return switch (field) {
+            case NAME -> null;
+            case MIN_PLAYERS, MAX_PLAYERS, MIN_TIME, MAX_TIME, YEAR, RANK -> {
+                int[] column = catalog.intColumn(field);
+                yield row -> column[row];
+            }
+            case RATING, DIFFICULTY -> {
+                double[] column = catalog.doubleColumn(field);
+                yield row -> column[row];
+            }
+            default -> throw new IllegalArgumentException("Invalid sort field: " + field);
+        };
+    }
+
+    /**
+     * Get the comparison of two rows on the field.
+     *
+     * @param rank  the rank of each row, used for names
+     * @param value the value of a row, null for names
+     * @return compares two rows, negative if the first sorts before the second
+     */
+    private static IntBinaryOperator comparator(int[] rank, IntToDoubleFunction value) {
+        return value == null
+                ? (a, b) -> Integer.compare(rank[a], rank[b])
+                : (a, b) -> Double.compare(value.applyAsDouble(a), value.applyAsDouble(b));
+    }
+
+    /**
+     * Creates the index from the sorted rows, filling in the dense ranks of numeric fields.
+     *
+     * @param order   every row, sorted with compare
+     * @param rank    the rank of each row for names, filled in here for numeric fields
+     * @param value   the value of a row, null for names
+     * @param compare compares two rows
+     * @return the index
+     */
+    private static SortIndex finish(int[] order, int[] rank, IntToDoubleFunction value,
+            IntBinaryOperator compare) {
+        if (value != null) {
+            int next = -1;
+            for (int i = 0; i < order.length; i++) {
+                if (i == 0 || compare.applyAsInt(order[i - 1], order[i]) != 0) {
+                    next++;
+                }
+                rank[order[i]] = next;
+            }
+        }
+        return new SortIndex(order, rank, value);
+    }
+
+    /**
+     * Get the number of rows in the index.
+     *
+     * @return number of rows
+     */
+    int size() {
+        return order.length;
+    }
+
+    /**
+     * Finds the first position in the order whose value is not below a target. NaN values sort
+     * last and never match.
+     *
+     * @param target the value to look for
+     * @param after  true to find the first position whose value is strictly above the target
+     * @return the position, at most the number of rows with a value that is not NaN
+     */
+    int bound(double target, boolean after) {
+        int lo = 0;
+        int hi = comparable;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double v = value.applyAsDouble(order[mid]);
+            if (v < target || (after && v == target)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Get the end of the positions whose value is a number. Positions from here on hold NaN.
+     *
+     * @return the number of rows with a value that is not NaN
+     */
+    int comparableEnd() {
+        return comparable;
+    }
+
+    /**
+     * Finds the first position in the order whose rank is not below a target.
+     *
+     * @param target the rank to look for
+     * @return the position, or the number of rows if every rank is below the target
+     */
+    int rankBound(int target) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rank[order[mid]] < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Get a range of positions of the order.
+     *
+     * @param from first position of the range
+     * @param to   one past the last position of the range
+     * @return the range
+     */
+    Range range(int from, int to) {
+        return new Range(this, from, Math.max(from, to));
+    }
+
+    /**
+     * Sorts query result rows on the field. Rows with equal values stay in row order in both
+     * directions, the same as a stable sort would leave them.
+     *
+     * @param rows      the result rows, in ascending row order
+     * @param count     number of result rows at the start of the array
+     * @param ascending true to sort ascending, false for descending
+     * @return a new array with the rows in sorted order
+     */
+    int[] sort(int[] rows, int count, boolean ascending) {
+        return sort(rows, count, ascending, null);
+    }
+
+    /**
+     * Sorts query result rows on the field, in parallel on a pool if the result or the catalog
+     * is large enough. The order is the same as from {@link #sort(int[], int, boolean)}.
+     *
+     * @param rows      the result rows, in ascending row order
+     * @param count     number of result rows at the start of the array
+     * @param ascending true to sort ascending, false for descending
+     * @param pool      the pool to sort on, or null to sort on the calling thread
+     * @return a new array with the rows in sorted order
+     */
+    int[] sort(int[] rows, int count, boolean ascending, ForkJoinPool pool) {
+        if (count > order.length / WALK_FRACTION) {
+            return walk(rows, count, ascending, pool);
+        }
+        long[] keys = new long[count];
+        int top = order.length == 0 ? 0 : rank[order[order.length - 1]];
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            int key = ascending ? rank[row] : top - rank[row];
+            keys[i] = (long) key << Integer.SIZE | row;
+        }
+        if (ParallelQuery.worthIt(pool, count)) {
+            ParallelQuery.sort(pool, keys);
+        } else {
+            Arrays.sort(keys);
+        }
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Finds the first rows of a query result in sorted order, without sorting the rest. A
+     * bounded max-heap keeps the k smallest (rank, row) keys seen so far, so the cost is
+     * O(count log k). Rows with equal values come in row order, the same as from
+     * {@link #sort(int[], int, boolean)}.
+     *
+     * @param rows      the result rows, in ascending row order
+     * @param count     number of result rows at the start of the array
+     * @param ascending true to sort ascending, false for descending
+     * @param k         number of rows wanted
+     * @return a new array with the first min(k, count) rows in sorted order
+     */
+    int[] first(int[] rows, int count, boolean ascending, int k) {
+        if (k >= count) {
+            return sort(rows, count, ascending);
+        }
+        long[] heap = new long[k];
+        int size = 0;
+        int top = order.length == 0 ? 0 : rank[order[order.length - 1]];
+        for (int i = 0; i < count && k > 0; i++) {
+            int row = rows[i];
+            int key = ascending ? rank[row] : top - rank[row];
+            long packed = (long) key << Integer.SIZE | row;
+            if (size < k) {
+                siftUp(heap, size++, packed);
+            } else if (packed < heap[0]) {
+                siftDown(heap, size, packed);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = (int) heap[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Adds a key to a max-heap.
+     *
+     * @param heap the heap
+     * @param size number of keys in the heap
+     * @param key  the key to add at position size
+     */
+    private static void siftUp(long[] heap, int size, long key) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    /**
+     * Replaces the largest key of a max-heap.
+     *
+     * @param heap the heap
+     * @param size number of keys in the heap
+     * @param key  the key to put in place of the largest
+     */
+    private static void siftDown(long[] heap, int size, long key) {
+        int i = 0;
+        int child = 1;
+        while (child < size) {
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        heap[i] = key;
+    }
+
+    /**
+     * Sorts a broad result by walking the whole order and keeping the rows in the result. On a
+     * pool, the order is cut into chunks that do not split a group of equal values; each chunk
+     * counts its rows of the result, and then writes them to its own place in the sorted rows.
+     *
+     * @param rows      the result rows, in ascending row order
+     * @param count     number of result rows
+     * @param ascending true to sort ascending, false for descending
+     * @param pool      the pool to sort on, or null to sort on the calling thread
+     * @return a new array with the rows in sorted order
+     */
+    private int[] walk(int[] rows, int count, boolean ascending, ForkJoinPool pool) {
+        long[] member = null;
+        if (count < order.length) {
+            member = new long[(order.length + Long.SIZE - 1) / Long.SIZE];
+            for (int i = 0; i < count; i++) {
+                member[rows[i] >>> 6] |= 1L << rows[i];
+            }
+        }
+        int[] sorted = new int[count];
+        if (!ParallelQuery.worthIt(pool, order.length)) {
+            walk(0, order.length, member, ascending, sorted, 0);
+            return sorted;
+        }
+        int chunks = ParallelQuery.chunks(pool, order.length);
+        int[] bounds = new int[chunks + 1];
+        for (int chunk = 1; chunk <= chunks; chunk++) {
+            int bound = Math.max(bounds[chunk - 1],
+                    ParallelQuery.start(chunk, chunks, order.length));
+            while (bound > 0 && bound < order.length
+                    && rank[order[bound - 1]] == rank[order[bound]]) {
+                bound++;
+            }
+            bounds[chunk] = bound;
+        }
+        long[] members = member;
+        int[] at = new int[chunks];
+        ParallelQuery.forEachChunk(pool, chunks,
+                chunk -> at[chunk] = count(bounds[chunk], bounds[chunk + 1], members));
+        int n = 0;
+        for (int i = 0; i < chunks; i++) {
+            int chunk = ascending ? i : chunks - 1 - i;
+            int size = at[chunk];
+            at[chunk] = n;
+            n += size;
+        }
+        ParallelQuery.forEachChunk(pool, chunks, chunk ->
+                walk(bounds[chunk], bounds[chunk + 1], members, ascending, sorted, at[chunk]));
+        return sorted;
+    }
+
+    /**
+     * Counts the rows of a result in a range of the order.
+     *
+     * @param from   first position of the range
+     * @param to     one past the last position of the range
+     * @param member bitset of the rows in the result, or null for every row
+     * @return the number of result rows in the range
+     */
+    private int count(int from, int to, long[] member) {
+        if (member == null) {
+            return to - from;
+        }
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            int row = order[i];
+            n += (int) (member[row >>> 6] >>> row) & 1;
+        }
+        return n;
+    }
+
+    /**
+     * Writes the rows of a result in a range of the order in sorted order. The range must not
+     * split a group of equal values.
+     *
+     * @param from      first position of the range
+     * @param to        one past the last position of the range
+     * @param member    bitset of the rows in the result, or null for every row
+     * @param ascending true to sort ascending, false for descending
+     * @param sorted    array to write the rows to
+     * @param at        position of the first row written
+     */
+    private void walk(int from, int to, long[] member, boolean ascending, int[] sorted, int at) {
+        int n = at;
+        if (ascending) {
+            for (int i = from; i < to; i++) {
+                int row = order[i];
+                if (member == null || (member[row >>> 6] & 1L << row) != 0) {
+                    sorted[n++] = row;
+                }
+            }
+            return;
+        }
+        // walk the groups of equal values from the top, each group in row order
+        int end = to;
+        while (end > from) {
+            int start = end - 1;
+            while (start > from && rank[order[start - 1]] == rank[order[end - 1]]) {
+                start--;
+            }
+            for (int i = start; i < end; i++) {
+                int row = order[i];
+                if (member == null || (member[row >>> 6] & 1L << row) != 0) {
+                    sorted[n++] = row;
+                }
+            }
+            end = start;
+        }
+    }
+
+    /** A contiguous range of positions in the order of a sort index. */
+    static final class Range {
+        /** The index the positions belong to. */
+        private final SortIndex index;
+        /** First position of the range. */
+        private final int from;
+        /** One past the last position of the range. */
+        private final int to;
+
+        /**
+         * Creates a range.
+         *
+         * @param index the index the positions belong to
+         * @param from  first position of the range
+         * @param to    one past the last position of the range
+         */
+        Range(SortIndex index, int from, int to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Get the number of rows in the range.
+         *
+         * @return number of rows
+         */
+        int size() {
+            return to - from;
+        }
+
+        /**
+         * Get the rows in the range.
+         *
+         * @return the set of rows
+         */
+        RowBitmap bitmap() {
+            return RowBitmap.of(index.order.length, index.order, from, to);
+        }
+
+        /**
+         * Get the rows outside the range.
+         *
+         * @return the set of rows before and after the range
+         */
+        RowBitmap complement() {
+            RowBitmap below = RowBitmap.of(index.order.length, index.order, 0, from);
+            return below.or(RowBitmap.of(index.order.length, index.order, to, index.order.length));
+        }
+    }
+}
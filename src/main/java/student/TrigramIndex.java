@@ -0,0 +1,319 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * Inverted index from the trigrams of the lower case names in a {@link NameDictionary} to the
+ * ids of the names that hold them.
+ *
+ * A trigram is three consecutive chars, packed into a long. Every distinct trigram gets a dense
+ * code from an open addressing hash table, and the ids of the names holding it are stored, in
+ * ascending order, in one shared array of postings. A name holding a value holds every trigram
+ * of the value, so intersecting the postings of the value's trigrams leaves only names that are
+ * likely to hold it; those still have to be checked.
+ */
+final class TrigramIndex {
+    /** Number of chars in a trigram. */
+    static final int LENGTH = 3;
+    /** Marks an empty slot of the hash table; packed trigrams are never negative. */
+    private static final long EMPTY = -1L;
+
+    /** Trigram in each slot of the hash table. */
+    private long[] slots;
+    /** Code of the trigram in each slot. */
+    private int[] slotCodes;
+    /** Number of distinct trigrams. */
+    private int size;
+    /** Start of each code's postings, and the end of the last one. */
+    private int[] offsets;
+    /** Name ids holding each trigram, grouped by code, ascending within a code. */
+    private int[] postings;
+
+    /**
+     * Creates an empty index.
+     */
+    private TrigramIndex() {
+        slots = new long[1 << 12];
+        Arrays.fill(slots, EMPTY);
+        slotCodes = new int[slots.length];
+    }
+
+    /**
+     * Builds the index of a dictionary. The names are read twice: once to give every trigram a
+     * code and count its names, and once to fill in the postings.
+     *
+     * @param names the dictionary
+     * @return the index
+     */
+    static TrigramIndex build(NameDictionary names) {
+        TrigramIndex index = new TrigramIndex();
+        int[] counts = new int[1 << 12];
+        int[] last = new int[counts.length];
+        Arrays.fill(last, -1);
+        for (int id = 0; id < names.size(); id++) {
+            String name = names.folded(id);
+            for (int i = 0; i + LENGTH <= name.length(); i++) {
+                int code = index.add(pack(name, i));
+                if (code == counts.length) {
+                    counts = Arrays.copyOf(counts, 2 * code);
+                    last = Arrays.copyOf(last, 2 * code);
+                    Arrays.fill(last, code, last.length, -1);
+                }
+                if (last[code] != id) {
+                    last[code] = id;
+                    counts[code]++;
+                }
+            }
+        }
+        int[] offsets = new int[index.size + 1];
+        for (int code = 0; code < index.size; code++) {
+            offsets[code + 1] = offsets[code] + counts[code];
+        }
+        int[] postings = new int[offsets[index.size]];
+        int[] next = Arrays.copyOf(offsets, index.size);
+        Arrays.fill(last, -1);
+        for (int id = 0; id < names.size(); id++) {
+            String name = names.folded(id);
+            for (int i = 0; i + LENGTH <= name.length(); i++) {
+                int code = index.find(pack(name, i));
+                if (last[code] != id) {
+                    last[code] = id;
+                    postings[next[code]++] = id;
+                }
+            }
+        }
+        index.offsets = offsets;
+        index.postings = postings;
+        return index;
+    }
+
+    /**
+     * Builds the index of a dictionary made by adding names to the dictionary of this index.
+     * The postings of this index are carried over with their ids shifted, which keeps them
+     * ascending, and merged with the postings of the added names, so only the added names are
+     * split into trigrams.
+     *
+     * @param names    the new dictionary
+     * @param shift    new id of each id of the old dictionary, ascending
+     * @param addedIds ids of the added names in the new dictionary, ascending
+     * @return the index of the new dictionary
+     */
+    TrigramIndex with(NameDictionary names, int[] shift, int[] addedIds) {
+        TrigramIndex index = new TrigramIndex();
+        index.slots = slots.clone();
+        index.slotCodes = slotCodes.clone();
+        index.size = size;
+        int[] counts = new int[Math.max(size, 1)];
+        int[] last = new int[counts.length];
+        Arrays.fill(last, -1);
+        for (int id : addedIds) {
+            String name = names.folded(id);
+            for (int i = 0; i + LENGTH <= name.length(); i++) {
+                int code = index.add(pack(name, i));
+                if (code >= counts.length) {
+                    counts = Arrays.copyOf(counts, 2 * code);
+                    last = Arrays.copyOf(last, 2 * code);
+                    Arrays.fill(last, code, last.length, -1);
+                }
+                if (last[code] != id) {
+                    last[code] = id;
+                    counts[code]++;
+                }
+            }
+        }
+        int[] addedOffsets = new int[index.size + 1];
+        for (int code = 0; code < index.size; code++) {
+            addedOffsets[code + 1] = addedOffsets[code] + counts[code];
+        }
+        int[] added = new int[addedOffsets[index.size]];
+        int[] next = Arrays.copyOf(addedOffsets, index.size);
+        Arrays.fill(last, -1);
+        for (int id : addedIds) {
+            String name = names.folded(id);
+            for (int i = 0; i + LENGTH <= name.length(); i++) {
+                int code = index.find(pack(name, i));
+                if (last[code] != id) {
+                    last[code] = id;
+                    added[next[code]++] = id;
+                }
+            }
+        }
+        int[] merged = new int[postings.length + added.length];
+        int[] mergedOffsets = new int[index.size + 1];
+        int at = 0;
+        for (int code = 0; code < index.size; code++) {
+            int i = code < size ? offsets[code] : 0;
+            int end = code < size ? offsets[code + 1] : 0;
+            int j = addedOffsets[code];
+            int addedEnd = addedOffsets[code + 1];
+            while (i < end || j < addedEnd) {
+                if (j == addedEnd || (i < end && shift[postings[i]] < added[j])) {
+                    merged[at++] = shift[postings[i++]];
+                } else {
+                    merged[at++] = added[j++];
+                }
+            }
+            mergedOffsets[code + 1] = at;
+        }
+        index.offsets = mergedOffsets;
+        index.postings = merged;
+        return index;
+    }
+
+    /**
+     * Finds the names that may hold a value, by intersecting the postings of its trigrams,
+     * shortest first.
+     *
+     * @param folded the value in lower case, at least {@link #LENGTH} chars long
+     * @return ids of the names holding every trigram of the value, ascending
+     */
+    int[] candidates(String folded) {
+        int[] codes = new int[folded.length() - LENGTH + 1];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = find(pack(folded, i));
+            if (codes[i] < 0) {
+                return new int[0];
+            }
+        }
+        for (int i = 1; i < codes.length; i++) {
+            int code = codes[i];
+            int j = i - 1;
+            while (j >= 0 && length(codes[j]) > length(code)) {
+                codes[j + 1] = codes[j];
+                j--;
+            }
+            codes[j + 1] = code;
+        }
+        int[] ids = Arrays.copyOfRange(postings, offsets[codes[0]], offsets[codes[0] + 1]);
+        int count = ids.length;
+        for (int i = 1; i < codes.length && count > 0; i++) {
+            if (codes[i] != codes[i - 1]) {
+                count = intersect(ids, count, offsets[codes[i]], offsets[codes[i] + 1]);
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Keeps the ids that also appear in a range of the postings. Each id is looked up by
+     * galloping from where the last one was found, so a short list against a long one costs
+     * about the short list's length times the log of the gaps.
+     *
+     * @param ids   ascending ids, overwritten with the ids kept
+     * @param count number of ids at the start of the array
+     * @param from  first position of the postings
+     * @param to    one past the last position of the postings
+     * @return number of ids kept, at the start of the array
+     */
+    private int intersect(int[] ids, int count, int from, int to) {
+        int kept = 0;
+        int at = from;
+        for (int i = 0; i < count && at < to; i++) {
+            int id = ids[i];
+            int step = 1;
+            int hi = at;
+            while (hi < to && postings[hi] < id) {
+                at = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            hi = Math.min(hi, to);
+            while (at < hi) {
+                int mid = (at + hi) >>> 1;
+                if (postings[mid] < id) {
+                    at = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (at < to && postings[at] == id) {
+                ids[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Get the number of names holding a trigram.
+     *
+     * @param code the code of the trigram
+     * @return the length of its postings
+     */
+    private int length(int code) {
+        return offsets[code + 1] - offsets[code];
+    }
+
+    /**
+     * Packs the trigram starting at a position of a string.
+     *
+     * @param s    the string
+     * @param from position of the first char
+     * @return the three chars packed into the low 48 bits
+     */
+    private static long pack(String s, int from) {
+        return (long) s.charAt(from) << 32 | (long) s.charAt(from + 1) << 16 | s.charAt(from + 2);
+    }
+
+    /**
+     * Get the slot of the hash table where a trigram is, or should go.
+     *
+     * @param trigram the packed trigram
+     * @return the slot holding the trigram, or the empty slot that ends its probe sequence
+     */
+    private int slot(long trigram) {
+        int mask = slots.length - 1;
+        int slot = (int) (trigram * 0x9E3779B97F4A7C15L >>> 32) & mask;
+        while (slots[slot] != EMPTY && slots[slot] != trigram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Get the code of a trigram.
+     *
+     * @param trigram the packed trigram
+     * @return its code, or -1 if no name holds it
+     */
+    private int find(long trigram) {
+        int slot = slot(trigram);
+        return slots[slot] == EMPTY ? -1 : slotCodes[slot];
+    }
+
+    /**
+     * Get the code of a trigram, giving it the next code if it is new.
+     *
+     * @param trigram the packed trigram
+     * @return its code
+     */
+    private int add(long trigram) {
+        int slot = slot(trigram);
+        if (slots[slot] != EMPTY) {
+            return slotCodes[slot];
+        }
+        slots[slot] = trigram;
+        slotCodes[slot] = size;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Doubles the hash table.
+     */
+    private void grow() {
+        long[] oldSlots = slots;
+        int[] oldCodes = slotCodes;
+        slots = new long[oldSlots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        slotCodes = new int[slots.length];
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != EMPTY) {
+                int slot = slot(oldSlots[i]);
+                slots[slot] = oldSlots[i];
+                slotCodes[slot] = oldCodes[i];
+            }
+        }
+    }
+}
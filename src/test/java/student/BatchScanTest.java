@@ -0,0 +1,113 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for block at a time evaluation of conditions.
+ */
+public class BatchScanTest {
+    private static final Catalog EDGES = new Catalog(List.of(
+            new BoardGame("Low", 1, Integer.MIN_VALUE, 0, 0, 0, Double.NEGATIVE_INFINITY, 1,
+                    -0.0, 0),
+            new BoardGame("High", 2, Integer.MAX_VALUE, 0, 0, 0, Double.POSITIVE_INFINITY, 2,
+                    0.0, 0),
+            new BoardGame("Unknown", 3, 0, 0, 0, 0, Double.NaN, 3, Double.NaN, 0),
+            new BoardGame("Go", 4, 5, 0, 0, 0, 7.5, 4, 7.5, 0),
+            new BoardGame("Chess", 5, -1, 0, 0, 0, -7.5, 5, 1.0, 0)));
+
+    @Test
+    void numericBatchesMatchRowTests() {
+        int[] ints = {Integer.MIN_VALUE, -1, 0, 5, Integer.MAX_VALUE};
+        double[] doubles = {Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0.0,
+            -0.0, 7.5};
+        for (Operations operation : Operations.values()) {
+            if (operation == Operations.CONTAINS) {
+                continue;
+            }
+            for (int target : ints) {
+                assertBatchMatches(new NumericCondition(GameData.MIN_PLAYERS, operation, target));
+            }
+            for (double target : doubles) {
+                assertBatchMatches(new NumericCondition(GameData.DIFFICULTY, operation, target));
+                assertBatchMatches(new NumericCondition(GameData.RATING, operation, target));
+            }
+        }
+    }
+
+    @Test
+    void scanAndFilterCrossBlockBoundaries() {
+        Random random = new Random(7);
+        List<BoardGame> games = new ArrayList<>();
+        for (int id = 0; id < 3 * BatchScan.BLOCK + 17; id++) {
+            games.add(new BoardGame("Game " + random.nextInt(50), id, random.nextInt(4) + 1, 8,
+                    10, 60, random.nextInt(5) / 2.0, id, 5.0, 2000 + random.nextInt(20)));
+        }
+        Catalog catalog = new Catalog(games);
+        List<FilterCondition> conditions = List.of(
+                new NumericCondition(GameData.MIN_PLAYERS, Operations.NOT_EQUALS, 2),
+                new NameCondition(Operations.CONTAINS, "1"),
+                new NumericCondition(GameData.YEAR, Operations.LESS_THAN, 2010));
+        IntPredicate expected = CompiledFilter.of(catalog, conditions);
+        BatchFilter[] filters = BatchScan.bind(catalog, conditions);
+
+        int[] all = new int[catalog.size()];
+        int count = BatchScan.scan(filters, 0, catalog.size(), all);
+        int[] everyOther = new int[catalog.size() / 2];
+        for (int i = 0; i < everyOther.length; i++) {
+            everyOther[i] = 2 * i;
+        }
+        int narrowed = BatchScan.filter(filters, everyOther, 0, everyOther.length);
+
+        int n = 0;
+        int m = 0;
+        for (int row = 0; row < catalog.size(); row++) {
+            if (expected.test(row)) {
+                assertEquals(row, all[n++]);
+                if (row % 2 == 0 && row / 2 < everyOther.length) {
+                    assertEquals(row, everyOther[m++]);
+                }
+            }
+        }
+        assertEquals(n, count);
+        assertEquals(m, narrowed);
+        assertTrue(n > 0);
+    }
+
+    @Test
+    void noFiltersKeepEveryRow() {
+        int[] rows = new int[BatchScan.BLOCK + 1];
+        assertEquals(rows.length, BatchScan.scan(new BatchFilter[0], 0, rows.length, rows));
+        assertEquals(BatchScan.BLOCK, rows[BatchScan.BLOCK]);
+    }
+
+    /**
+     * Checks both forms of a condition's batch filter against its row test.
+     *
+     * @param condition the condition
+     */
+    private static void assertBatchMatches(NumericCondition condition) {
+        BatchFilter filter = condition.batch(EDGES);
+        int[] block = new int[EDGES.size()];
+        int fromRange = filter.select(0, EDGES.size(), block);
+        int[] vector = {4, 3, 2, 1, 0};
+        int fromVector = filter.select(vector, vector.length);
+        int n = 0;
+        for (int row = 0; row < EDGES.size(); row++) {
+            if (condition.test(EDGES, row)) {
+                assertEquals(row, block[n++], condition.normalized());
+            }
+        }
+        assertEquals(n, fromRange, condition.normalized());
+        assertEquals(n, fromVector, condition.normalized());
+        for (int i = 0; i < fromVector; i++) {
+            assertTrue(condition.test(EDGES, vector[i]), condition.normalized());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotTest {
+    private static final String HEADER = "objectname,objectid,average,avgweight,rank,minplayers,"
+            + "maxplayers,minplaytime,maxplaytime,yearpublished,comment\n";
+
+    @TempDir
+    Path dir;
+
+    private Path source() throws IOException {
+        return Files.writeString(dir.resolve("collection.csv"), "objectname,objectid\n");
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        Path source = source();
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        List<BoardGame> games = List.of(
+                new BoardGame("Go", 1, 2, 5, 30, 35, 8.0, 100, 7.5, 2000),
+                new BoardGame("Ticket \u00e0 \u201cRide\u201d", 2, 2, 10, 20, 120, 3.25, 200,
+                        6.5, 2001),
+                new BoardGame("", 3, 6, 6, 40, 42, 5.0, 300, 8.5, -2002));
+        CatalogSnapshot.write(games, snapshot, source);
+
+        Set<BoardGame> read = CatalogSnapshot.read(snapshot, source);
+        assertEquals(Set.copyOf(games), read);
+        for (BoardGame game : games) {
+            BoardGame copy = read.stream().filter(game::equals).findFirst().orElseThrow();
+            assertEquals(game.toString(), copy.toString());
+        }
+    }
+
+    @Test
+    void roundTripCollection() throws IOException {
+        Path source = source();
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        Set<BoardGame> games = GamesLoader.loadGamesFile("/collection.csv");
+        CatalogSnapshot.write(games, snapshot, source);
+        assertEquals(games, CatalogSnapshot.read(snapshot, source));
+    }
+
+    @Test
+    void readCatalogSortsFromColumns() throws IOException {
+        Path source = source();
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        CatalogSnapshot.write(List.of(
+                new BoardGame("Go", 1, 2, 5, 30, 35, 8.0, 100, 7.5, 2000),
+                new BoardGame("Chess", 2, 2, 2, 10, 20, 10.0, 700, 10.0, 2006)),
+                snapshot, source);
+
+        Catalog catalog = CatalogSnapshot.readCatalog(snapshot, source);
+        assertEquals(2, catalog.size());
+        List<String> byRating = new Planner(catalog).filter("", GameData.RATING, false)
+                .map(BoardGame::getName).toList();
+        assertEquals(List.of("Chess", "Go"), byRating);
+    }
+
+    @Test
+    void rejectStaleSnapshot() throws IOException {
+        Path source = source();
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        CatalogSnapshot.write(List.of(), snapshot, source);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(0));
+        assertThrows(IOException.class, () -> CatalogSnapshot.read(snapshot, source));
+    }
+
+    @Test
+    void rejectSourceChangedWhileLoading() throws IOException {
+        Path source = source();
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        BasicFileAttributes before = Files.readAttributes(source, BasicFileAttributes.class);
+        Files.writeString(source, "Go,1\n", StandardOpenOption.APPEND);
+        CatalogSnapshot.write(List.of(new BoardGame("Go", 1, 2, 5, 30, 35, 8.0, 100, 7.5, 2000)),
+                snapshot, before);
+        assertThrows(IOException.class, () -> CatalogSnapshot.read(snapshot, source));
+    }
+
+    @Test
+    void loadCollectionWritesSnapshotOnlyForGoodLoads() throws IOException {
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        Path broken = Files.writeString(dir.resolve("collection.csv"),
+                "objectname,objectid\nGo,1\n");
+        assertEquals(0, BGArenaPlanner.loadCollection(broken).size());
+        assertFalse(Files.exists(snapshot));
+
+        Files.writeString(broken, HEADER);
+        assertEquals(0, BGArenaPlanner.loadCollection(broken).size());
+        assertFalse(Files.exists(snapshot));
+
+        Files.writeString(broken, HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n");
+        assertEquals(1, BGArenaPlanner.loadCollection(broken).size());
+        assertEquals(1, CatalogSnapshot.read(snapshot, broken).size());
+    }
+
+    @Test
+    void loadCollectionReplacesSnapshotWithBadOffsets() throws IOException {
+        Path collection = Files.writeString(dir.resolve("collection.csv"),
+                HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n");
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        assertEquals(1, BGArenaPlanner.loadCollection(collection).size());
+
+        // point the end of the only name past the blob, and fix up the checksum to match
+        int header = 40;
+        int offsets = header + 7 * Integer.BYTES + 2 * Double.BYTES;
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(snapshot))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(offsets + Integer.BYTES, 1000);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), header, bytes.capacity() - header);
+        bytes.putLong(header - Long.BYTES, crc.getValue());
+        Files.write(snapshot, bytes.array());
+        assertThrows(RuntimeException.class, () -> CatalogSnapshot.read(snapshot, collection));
+
+        assertEquals(1, BGArenaPlanner.loadCollection(collection).size());
+        assertEquals(1, CatalogSnapshot.read(snapshot, collection).size());
+    }
+
+    @Test
+    void rejectCorruptSnapshot() throws IOException {
+        Path source = source();
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        CatalogSnapshot.write(List.of(new BoardGame("Go", 1, 2, 5, 30, 35, 8.0, 100, 7.5, 2000)),
+                snapshot, source);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), channel.size() - 1);
+        }
+        assertThrows(IOException.class, () -> CatalogSnapshot.read(snapshot, source));
+    }
+
+    @Test
+    void failedMoveLeavesNoTempFile() throws IOException {
+        Path source = source();
+        // a non-empty directory in the way makes the final move fail
+        Path snapshot = Files.createDirectory(dir.resolve("collection.csv.snapshot"));
+        Files.writeString(snapshot.resolve("blocker"), "x");
+        assertThrows(IOException.class, () -> CatalogSnapshot.write(
+                List.of(new BoardGame("Go", 1, 2, 5, 30, 35, 8.0, 100, 7.5, 2000)), snapshot,
+                source));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(), files.filter(f -> f.toString().endsWith(".tmp"))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void rejectOtherFiles() throws IOException {
+        Path source = source();
+        assertThrows(IOException.class, () -> CatalogSnapshot.read(source, source));
+    }
+}
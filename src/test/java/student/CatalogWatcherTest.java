@@ -0,0 +1,80 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogWatcherTest {
+    private static final String HEADER = "objectname,objectid,average,avgweight,rank,minplayers,"
+            + "maxplayers,minplaytime,maxplaytime,yearpublished,comment\n";
+
+    @TempDir
+    Path dir;
+
+    private static String rows(int from, int to) {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (int id = from; id < to; id++) {
+            text.append("Game ").append(id).append(',').append(id)
+                    .append(",7.5,2.0,100,2,5,30,30,2000,\n");
+        }
+        return text.toString();
+    }
+
+    @Test
+    void reloadAppliesChangesAndRewritesSnapshot() throws IOException {
+        Path file = Files.writeString(dir.resolve("collection.csv"), rows(0, 10));
+        Path snapshot = dir.resolve("collection.csv.snapshot");
+        Planner planner = new Planner(GamesLoader.loadGamesFile(file));
+        try (CatalogWatcher watcher = new CatalogWatcher(file, snapshot, planner)) {
+            Files.writeString(file, rows(2, 12));
+            CatalogDelta delta = watcher.reload();
+            assertEquals(2, delta.getInserted());
+            assertEquals(2, delta.getDeleted());
+            assertEquals(10, planner.getCatalog().size());
+            assertEquals(GamesLoader.loadGamesFile(file), CatalogSnapshot.read(snapshot, file));
+        }
+    }
+
+    @Test
+    void refuseTruncatedOrPartialFile() throws IOException {
+        Path file = Files.writeString(dir.resolve("collection.csv"), rows(0, 10));
+        Planner planner = new Planner(GamesLoader.loadGamesFile(file));
+        Catalog catalog = planner.getCatalog();
+        try (CatalogWatcher watcher = new CatalogWatcher(file, planner)) {
+            Files.writeString(file, "");
+            assertThrows(IOException.class, watcher::reload);
+            Files.writeString(file, rows(0, 3));
+            assertThrows(IOException.class, watcher::reload);
+            Files.writeString(file, rows(0, 3) + "Game 3,3,7.5");
+            assertThrows(IOException.class, watcher::reload);
+            assertSame(catalog, planner.getCatalog());
+        }
+    }
+
+    @Test
+    void reloadEmptiedCollection() throws IOException {
+        Path file = Files.writeString(dir.resolve("collection.csv"), rows(0, 10));
+        Planner planner = new Planner(GamesLoader.loadGamesFile(file));
+        try (CatalogWatcher watcher = new CatalogWatcher(file, planner)) {
+            Files.writeString(file, HEADER);
+            assertEquals(10, watcher.reload().getDeleted());
+            assertEquals(0, planner.getCatalog().size());
+        }
+    }
+
+    @Test
+    void reloadMissingColumnFails() throws IOException {
+        Path file = Files.writeString(dir.resolve("collection.csv"), rows(0, 10));
+        Planner planner = new Planner(GamesLoader.loadGamesFile(file));
+        try (CatalogWatcher watcher = new CatalogWatcher(file, planner)) {
+            Files.writeString(file, "objectname,objectid\nGo,1\n");
+            assertThrows(IllegalArgumentException.class, watcher::reload);
+            assertEquals(10, planner.getCatalog().size());
+        }
+    }
+}
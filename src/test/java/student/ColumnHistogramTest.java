@@ -0,0 +1,61 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the column histograms used to estimate selectivity.
+ */
+public class ColumnHistogramTest {
+
+    @Test
+    void smallColumnsAreExact() {
+        int[] column = {5, 1, 3, 3, 9, 7, 3, 1};
+        ColumnHistogram histogram = ColumnHistogram.build(column.length, row -> column[row]);
+        assertEquals(2 / 8.0, histogram.below(3, false));
+        assertEquals(5 / 8.0, histogram.below(3, true));
+        assertEquals(0.0, histogram.below(0, true));
+        assertEquals(1.0, histogram.below(10, false));
+        assertEquals(3 / 8.0, histogram.matching(v -> v > 4));
+    }
+
+    @Test
+    void largeColumnsAreEstimatedFromASample() {
+        int size = 200_000;
+        ColumnHistogram histogram = ColumnHistogram.build(size, row -> row % 1000);
+        assertEquals(0.25, histogram.below(250, false), 0.05);
+        assertEquals(0.9, 1 - histogram.below(100, false), 0.05);
+    }
+
+    @Test
+    void emptyColumn() {
+        ColumnHistogram histogram = ColumnHistogram.build(0, row -> row);
+        assertEquals(0.0, histogram.below(1, true));
+        assertEquals(0.0, histogram.matching(v -> true));
+    }
+
+    @Test
+    void conditionsEstimateFromCatalogHistograms() {
+        Catalog catalog = new Catalog(List.of(
+                new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 2005),
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("golang", 4, 2, 7, 50, 55, 7.0, 400, 9.5, 2003),
+                new BoardGame("GoRami", 3, 6, 6, 40, 42, 5.0, 300, 8.5, 2002),
+                new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007),
+                new BoardGame("Tucano", 5, 10, 20, 60, 90, 6.0, 500, 8.0, 2004)));
+        assertEquals(7 / 8.0, new NumericCondition(GameData.MIN_PLAYERS,
+                Operations.GREATER_THAN_EQUALS, 2)
+                .selectivity(catalog));
+        assertEquals(1 / 8.0, new NumericCondition(GameData.YEAR, Operations.EQUALS, 2003)
+                .selectivity(catalog));
+        assertEquals(7 / 8.0, new NumericCondition(GameData.YEAR, Operations.NOT_EQUALS, 2003)
+                .selectivity(catalog));
+        assertEquals(4 / 8.0, new NameCondition(Operations.CONTAINS, "go").selectivity(catalog));
+        assertEquals(2 / 8.0, new NameCondition(Operations.LESS_THAN, "go").selectivity(catalog));
+    }
+}
@@ -0,0 +1,91 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for filters compiled into hidden classes.
+ */
+public class CompiledFilterTest {
+    private static final Catalog CATALOG = new Catalog(List.of(
+            new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 2005),
+            new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+            new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+            new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+            new BoardGame("golang", 4, 2, 7, 50, 55, 7.0, 400, 9.5, 2003),
+            new BoardGame("GoRami", 3, 6, 6, 40, 42, 5.0, 300, 8.5, 2002),
+            new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007),
+            new BoardGame("Tucano", 5, 10, 20, 60, 90, 6.0, 500, 8.0, 2004)));
+
+    @Test
+    void compilesToHiddenClassMatchingTheChain() {
+        List<FilterCondition> conditions = List.of(
+                new NumericCondition(GameData.MIN_PLAYERS, Operations.GREATER_THAN_EQUALS, 2),
+                new NameCondition(Operations.CONTAINS, "o"),
+                new NumericCondition(GameData.RATING, Operations.LESS_THAN, 9.0));
+        IntPredicate compiled = CompiledFilter.of(CATALOG, conditions);
+        assertTrue(compiled.getClass().isHidden());
+
+        IntPredicate[] tests = conditions.stream().map(c -> c.bind(CATALOG))
+                .toArray(IntPredicate[]::new);
+        IntPredicate chain = CompiledFilter.chain(tests);
+        int matches = 0;
+        for (int row = 0; row < CATALOG.size(); row++) {
+            assertEquals(chain.test(row), compiled.test(row));
+            matches += compiled.test(row) ? 1 : 0;
+        }
+        assertEquals(5, matches);
+    }
+
+    @Test
+    void cachedByNormalizedText() {
+        Catalog catalog = new Catalog(List.of(
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000)));
+        IntPredicate first = CompiledFilter.of(catalog, List.of(
+                new NumericCondition(GameData.MAX_TIME, Operations.LESS_THAN, 60),
+                new NameCondition(Operations.CONTAINS, "GO")));
+        IntPredicate second = CompiledFilter.of(catalog, List.of(
+                new NumericCondition(GameData.MAX_TIME, Operations.LESS_THAN, 60),
+                new NameCondition(Operations.CONTAINS, "go")));
+        assertSame(first, second);
+        assertEquals(1, catalog.compiledFilters().size());
+        assertTrue(catalog.compiledFilters().containsKey("maxplaytime<60,objectname~=go"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        Catalog catalog = new Catalog(List.of(
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000)));
+        IntPredicate[] filters = new IntPredicate[CompiledFilter.MAX_CACHED + 1];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = CompiledFilter.of(catalog, List.of(
+                    new NumericCondition(GameData.RANK, Operations.LESS_THAN, i),
+                    new NumericCondition(GameData.YEAR, Operations.GREATER_THAN, 1990)));
+            if (i == CompiledFilter.MAX_CACHED - 1) {
+                // use the first filter again, so the second one is the least recently used
+                assertSame(filters[0], CompiledFilter.of(catalog, List.of(
+                        new NumericCondition(GameData.RANK, Operations.LESS_THAN, 0),
+                        new NumericCondition(GameData.YEAR, Operations.GREATER_THAN, 1990))));
+            }
+        }
+        assertEquals(CompiledFilter.MAX_CACHED, catalog.compiledFilters().size());
+        assertTrue(catalog.compiledFilters().containsKey("rank<0,yearpublished>1990"));
+        assertFalse(catalog.compiledFilters().containsKey("rank<1,yearpublished>1990"));
+        assertTrue(catalog.compiledFilters().containsKey("rank<256,yearpublished>1990"));
+    }
+
+    @Test
+    void conditionsWithoutTextAreNotCached() {
+        Catalog catalog = new Catalog(List.of(
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000)));
+        FilterCondition custom = game -> game.getYearPublished() == 2000;
+        IntPredicate filter = CompiledFilter.of(catalog, List.of(custom,
+                new NumericCondition(GameData.YEAR, Operations.EQUALS, 2000)));
+        assertTrue(filter.test(0));
+        assertTrue(catalog.compiledFilters().isEmpty());
+    }
+}
@@ -0,0 +1,411 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GamesLoaderTest {
+    private static final String HEADER = "objectname,objectid,average,avgweight,rank,minplayers,"
+            + "maxplayers,minplaytime,maxplaytime,yearpublished,comment\n";
+
+    private static InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BoardGame only(Set<BoardGame> games) {
+        assertEquals(1, games.size());
+        return games.iterator().next();
+    }
+
+    @Test
+    void loadDefaultCollection() {
+        Set<BoardGame> games = GamesLoader.loadGamesFile("/collection.csv");
+        assertFalse(games.isEmpty());
+        assertTrue(games.stream().anyMatch(g -> g.getName().equals("13 Clues")));
+    }
+
+    @Test
+    void loadMissingResource() {
+        assertTrue(GamesLoader.loadGamesFile("/does-not-exist.csv").isEmpty());
+    }
+
+    @Test
+    void loadSimpleRow() throws IOException {
+        BoardGame game = only(GamesLoader.loadGames(
+                csv(HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,nice\n")));
+        assertEquals("Go", game.getName());
+        assertEquals(1, game.getId());
+        assertEquals(7.5, game.getRating());
+        assertEquals(8.0, game.getDifficulty());
+        assertEquals(100, game.getRank());
+        assertEquals(2, game.getMinPlayers());
+        assertEquals(5, game.getMaxPlayers());
+        assertEquals(2000, game.getYearPublished());
+    }
+
+    @Test
+    void loadQuotedFields() throws IOException {
+        BoardGame game = only(GamesLoader.loadGames(csv(HEADER
+                + "\"Catan: Cities, \"\"Knights\"\"\",2,7.1,3.1,50,3,4,60,90,1998,"
+                + "\"line one\r\nline, two\"\r\n")));
+        assertEquals("Catan: Cities, \"Knights\"", game.getName());
+        assertEquals(1998, game.getYearPublished());
+    }
+
+    @Test
+    void loadWithoutTrailingNewline() throws IOException {
+        BoardGame game = only(GamesLoader.loadGames(
+                csv(HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,")));
+        assertEquals("Go", game.getName());
+    }
+
+    @Test
+    void skipBadRows() throws IOException {
+        Set<BoardGame> games = GamesLoader.loadGames(csv(HEADER
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n"
+                + "Short,2,7.5\n"
+                + "BadNumber,3,seven,8.0,100,2,5,30,30,2000,\n"
+                + "\n"));
+        assertEquals("Go", only(games).getName());
+    }
+
+    @Test
+    void skipUnusedQuotedColumns() throws IOException {
+        String header = "objectname,objectid,average,avgweight,rank,minplayers,"
+                + "maxplayers,minplaytime,maxplaytime,yearpublished,comment,other\n";
+        Set<BoardGame> games = GamesLoader.loadGames(csv(header
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\"a,\"\"b\"\"\r\nc\",x\r\n"
+                + "Chess,2,7.5,8.0,100,2,2,30,30,1990,\"\",\"\"\"\"\n"
+                + "Tucano,3,7.5,8.0,100,2,5,30,30,2004,plain,\"done\""));
+        assertEquals(3, games.size());
+    }
+
+    @Test
+    void parseNumbersLikeJdk() throws IOException {
+        String[] ratings = {"6.60806", "-0.5", "1e2", "+3", "007.250", "0.1", "5.",
+            "123456789012345678.5", "7.0000000000000000000000001"};
+        for (String rating : ratings) {
+            BoardGame game = only(GamesLoader.loadGames(
+                    csv(HEADER + "Go,+1,\"" + rating + "\",8.0,-100,2,5,30,30,2000,\n")));
+            assertEquals(Double.parseDouble(rating), game.getRating(), rating);
+            assertEquals(1, game.getId());
+            assertEquals(-100, game.getRank());
+        }
+    }
+
+    @Test
+    void skipOutOfRangeNumbers() throws IOException {
+        Set<BoardGame> games = GamesLoader.loadGames(csv(HEADER
+                + "Min,1,7.5,8.0,-2147483648,2,5,30,30,2000,\n"
+                + "Over,2,7.5,8.0,2147483648,2,5,30,30,2000,\n"
+                + "Dot,3,.,8.0,1,2,5,30,30,2000,\n"
+                + "Sign,4,7.5,8.0,-,2,5,30,30,2000,\n"));
+        assertEquals(Integer.MIN_VALUE, only(games).getRank());
+    }
+
+    @Test
+    void reportSkippedRows() throws IOException {
+        String text = HEADER
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n"
+                + "Short,2,7.5\n"
+                + "BadNumber,3,seven,8.0,100,2,5,30,30,2000,\n"
+                + "Chess,4,7.5,8.0,100,2,2,30,30,1990,\n";
+        LoadResult result = GamesLoader.load(csv(text), "test");
+        LoadReport report = result.getReport();
+        assertEquals(2, result.getGames().size());
+        assertEquals(4, report.getRowsRead());
+        assertEquals(2, report.getRowsAccepted());
+        assertEquals(1, report.getRowsSkipped(LoadReport.SkipReason.SHORT_ROW));
+        assertEquals(1, report.getRowsSkipped(LoadReport.SkipReason.NUMBER_FORMAT));
+        assertEquals(2, report.getRowsSkipped());
+        assertEquals(text.length(), report.getBytes());
+    }
+
+    @Test
+    void reportFileLoad(@TempDir Path dir) throws IOException {
+        String text = HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\nShort,2\n";
+        Path file = Files.writeString(dir.resolve("games.csv"), text);
+        LoadReport report = GamesLoader.load(file).getReport();
+        assertEquals(2, report.getRowsRead());
+        assertEquals(1, report.getRowsAccepted());
+        assertEquals(text.length(), report.getBytes());
+    }
+
+    @Test
+    void publishLoadEvent(@TempDir Path dir) throws IOException {
+        Path dump = dir.resolve("load.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("student.CatalogLoad");
+            recording.start();
+            GamesLoader.load(csv(HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\nShort,2\n"),
+                    "events");
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(1, events.size());
+        assertEquals("events", events.get(0).getString("source"));
+        assertEquals(1, events.get(0).getLong("shortRows"));
+    }
+
+    @Test
+    void publishLoadEventPerMergedSource(@TempDir Path dir) throws IOException {
+        Path first = Files.writeString(dir.resolve("a.csv"),
+                HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\nShort,2\n");
+        Path second = Files.writeString(dir.resolve("b.csv"),
+                HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2001,\n");
+        Path dump = dir.resolve("load.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("student.CatalogLoad").withThreshold(Duration.ZERO);
+            recording.start();
+            GamesLoader.loadGamesFiles(List.of(first, second), MergePolicy.LATEST_WINS);
+            GamesLoader.loadGames(List.of(csv(HEADER), csv(HEADER)), MergePolicy.LATEST_WINS);
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(Set.of(first.toString(), second.toString(), "stream 0", "stream 1"),
+                events.stream().map(e -> e.getString("source")).collect(Collectors.toSet()));
+        assertEquals(1, events.stream().mapToLong(e -> e.getLong("shortRows")).sum());
+    }
+
+    @Test
+    void reportDuplicateRows() throws IOException {
+        String text = HEADER
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n"
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n"
+                + "Chess,4,7.5,8.0,100,2,2,30,30,1990,\n";
+        LoadResult result = GamesLoader.load(csv(text), "test");
+        LoadReport report = result.getReport();
+        assertEquals(3, report.getRowsRead());
+        assertEquals(result.getGames().size(), report.getRowsAccepted());
+        assertEquals(1, report.getDuplicates());
+    }
+
+    @Test
+    void loadEventCoversWholeLoad(@TempDir Path dir) throws IOException {
+        Path dump = dir.resolve("load.jfr");
+        InputStream slow = new FilterInputStream(csv(HEADER
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n")) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return super.read(b, off, len);
+            }
+        };
+        try (Recording recording = new Recording()) {
+            recording.enable("student.CatalogLoad").withThreshold(Duration.ZERO);
+            recording.start();
+            GamesLoader.load(slow, "slow");
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getDuration().toMillis() >= 50);
+    }
+
+    @Test
+    void loadGzipFile(@TempDir Path dir) throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (int i = 0; i < 20_000; i++) {
+            text.append("\"Game, ").append(i).append("\",").append(i)
+                    .append(",7.5,2.0,100,2,5,30,30,2000,\"a\nmultiline comment\"\n");
+        }
+        Path plain = Files.writeString(dir.resolve("games.csv"), text);
+        Path gzip = dir.resolve("games.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            Files.copy(plain, out);
+        }
+
+        LoadResult result = GamesLoader.load(gzip);
+        Set<BoardGame> expected = GamesLoader.loadGames(csv(text.toString()));
+        assertEquals(20_000, result.getGames().size());
+        assertEquals(expected, result.getGames());
+        assertEquals(expected.stream().map(BoardGame::toString).collect(Collectors.toSet()),
+                result.getGames().stream().map(BoardGame::toString).collect(Collectors.toSet()));
+        assertEquals(Files.size(plain), result.getReport().getBytes());
+    }
+
+    @Test
+    void loadCorruptGzipFile(@TempDir Path dir) throws IOException {
+        Path gzip = Files.write(dir.resolve("games.csv.gz"), new byte[] {0x1f, (byte) 0x8b, 8, 0});
+        assertThrows(IOException.class, () -> GamesLoader.load(gzip));
+        assertTrue(GamesLoader.loadGamesFile(gzip).isEmpty());
+    }
+
+    @Test
+    void corruptGzipStreamFailsInsteadOfHanging() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(HEADER.repeat(1000).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] corrupt = bytes.toByteArray();
+        for (int i = 20; i < corrupt.length - 8; i += 7) {
+            corrupt[i] ^= 0x5A;
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class,
+                () -> new GzipPipeInputStream(new ByteArrayInputStream(corrupt)).readAllBytes()));
+    }
+
+    @Test
+    void gzipSourceRuntimeFailureIsReported() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("source failed");
+            }
+        };
+        IOException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(
+                IOException.class, () -> new GzipPipeInputStream(failing).readAllBytes()));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void missingColumn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> GamesLoader.loadGames(csv("objectname,objectid\nGo,1\n")));
+    }
+
+    @Test
+    void loadRowsLargerThanBuffer() throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        String comment = "x".repeat(200_000);
+        for (int i = 0; i < 50; i++) {
+            text.append("Game ").append(i).append(',').append(i)
+                    .append(",7.5,2.0,100,2,5,30,30,2000,").append(comment).append('\n');
+        }
+        assertEquals(50, GamesLoader.loadGames(csv(text.toString())).size());
+    }
+
+    @Test
+    void loadFileInParallelChunks(@TempDir Path dir) throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (int i = 0; i < 60_000; i++) {
+            text.append("\"Game, ").append(i).append("\",").append(i)
+                    .append(",7.5,2.0,100,2,5,30,30,2000,some comment text\r\n");
+        }
+        Path file = dir.resolve("big.csv");
+        Files.writeString(file, text);
+        assertTrue(Files.size(file) > 3 << 20);
+
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file);
+        assertEquals(60_000, games.size());
+        assertEquals(GamesLoader.loadGames(csv(text.toString())), games);
+    }
+
+    @Test
+    void loadFileWithQuotedLineBreaksAcrossChunks(@TempDir Path dir) throws IOException {
+        // nearly every line feed is inside a comment, so the chunk cuts land inside quotes
+        String comment = "\"" + "a line of free text, with a comma\n".repeat(300) + "\"";
+        StringBuilder text = new StringBuilder(HEADER);
+        for (int i = 0; i < 500; i++) {
+            text.append("Game ").append(i).append(',').append(i)
+                    .append(",7.5,2.0,100,2,5,30,30,2000,").append(comment).append('\n');
+        }
+        Path file = dir.resolve("comments.csv");
+        Files.writeString(file, text);
+        assertTrue(Files.size(file) > 3 << 20);
+
+        LoadResult result = GamesLoader.load(file);
+        LoadReport report = result.getReport();
+        assertEquals(GamesLoader.loadGames(csv(text.toString())), result.getGames());
+        assertEquals(500, result.getGames().size());
+        assertEquals(500, report.getRowsRead());
+        assertEquals(0, report.getRowsSkipped());
+        assertEquals(Files.size(file), report.getBytes());
+    }
+
+    @Test
+    void loadMissingFile(@TempDir Path dir) {
+        assertTrue(GamesLoader.loadGamesFile(dir.resolve("missing.csv")).isEmpty());
+    }
+
+    @Test
+    void mergeStreamsById() throws IOException {
+        String first = HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n"
+                + "Chess,2,9.0,8.0,100,2,2,30,30,1990,\n";
+        String second = HEADER + "Go,1,8.5,8.0,100,2,5,30,30,2001,\n"
+                + "Chess,2,6.0,8.0,100,2,2,30,30,1991,\n"
+                + "Tucano,3,8.0,6.0,500,10,20,60,90,2004,\n";
+
+        Set<BoardGame> latest = GamesLoader.loadGames(List.of(csv(first), csv(second)),
+                MergePolicy.LATEST_WINS);
+        assertEquals(3, latest.size());
+        assertTrue(latest.stream().noneMatch(g -> g.getYearPublished() == 2000
+                || g.getYearPublished() == 1990));
+
+        Set<BoardGame> earliest = GamesLoader.loadGames(List.of(csv(first), csv(second)),
+                MergePolicy.FIRST_WINS);
+        assertEquals(3, earliest.size());
+        assertTrue(earliest.stream().noneMatch(g -> g.getYearPublished() == 2001
+                || g.getYearPublished() == 1991));
+
+        Set<BoardGame> best = GamesLoader.loadGames(List.of(csv(first), csv(second)),
+                MergePolicy.MAX_RATING);
+        assertTrue(best.stream().anyMatch(g -> g.getName().equals("Go") && g.getRating() == 8.5));
+        assertTrue(best.stream().anyMatch(g -> g.getName().equals("Chess")
+                && g.getRating() == 9.0));
+    }
+
+    @Test
+    void mergeKeepsGamesSharingAnIdInOneSource() throws IOException {
+        String first = HEADER + "Belote,15722,6.0,1.5,100,4,4,30,30,1920,\n"
+                + "Coinche,15722,6.5,1.5,100,4,4,30,30,1920,\n"
+                + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n";
+        Set<BoardGame> single = GamesLoader.loadGames(List.of(csv(first)),
+                MergePolicy.LATEST_WINS);
+        assertEquals(GamesLoader.loadGames(csv(first)), single);
+        assertEquals(3, single.size());
+
+        String second = HEADER + "Belote,15722,7.0,1.5,100,4,4,30,30,1921,\n";
+        Set<BoardGame> latest = GamesLoader.loadGames(List.of(csv(first), csv(second)),
+                MergePolicy.LATEST_WINS);
+        assertEquals(2, latest.size());
+        assertTrue(latest.stream().noneMatch(g -> g.getName().equals("Coinche")));
+        Set<BoardGame> earliest = GamesLoader.loadGames(List.of(csv(first), csv(second)),
+                MergePolicy.FIRST_WINS);
+        assertEquals(3, earliest.size());
+        Set<BoardGame> best = GamesLoader.loadGames(List.of(csv(second), csv(first)),
+                MergePolicy.MAX_RATING);
+        assertEquals(2, best.size());
+        assertTrue(best.stream().anyMatch(g -> g.getRating() == 7.0));
+    }
+
+    @Test
+    void mergeFilesById(@TempDir Path dir) throws IOException {
+        Path first = Files.writeString(dir.resolve("a.csv"),
+                HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2000,\n");
+        Path second = Files.writeString(dir.resolve("b.csv"),
+                HEADER + "Go,1,7.5,8.0,100,2,5,30,30,2001,\nChess,2,9.0,8.0,100,2,2,30,30,1990,\n");
+        Set<BoardGame> games = GamesLoader.loadGamesFiles(
+                List.of(first, second, dir.resolve("missing.csv")), MergePolicy.LATEST_WINS);
+        assertEquals(2, games.size());
+        assertTrue(games.stream().anyMatch(g -> g.getYearPublished() == 2001));
+    }
+}
@@ -0,0 +1,64 @@
+package student;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for filtering and sorting on a ForkJoin pool.
+ */
+public class ParallelQueryTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void sortMatchesSequentialSort() {
+        Random random = new Random(3);
+        for (int size : new int[] {ParallelQuery.THRESHOLD, 300_001}) {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = random.nextInt(1000) == 0 ? Long.MIN_VALUE : random.nextLong();
+            }
+            long[] expected = keys.clone();
+            Arrays.sort(expected);
+            ParallelQuery.sort(POOL, keys);
+            assertArrayEquals(expected, keys);
+        }
+    }
+
+    @Test
+    void filterJoinsChunksInOrder() {
+        int size = 200_003;
+        int[] rows = new int[size];
+        int count = ParallelQuery.filter(POOL, size, rows, (from, to) -> {
+            int kept = 0;
+            for (int row = from; row < to; row++) {
+                if (row % 7 == 3) {
+                    rows[from + kept++] = row;
+                }
+            }
+            return kept;
+        });
+        assertEquals((size - 3 + 6) / 7, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(7 * i + 3, rows[i]);
+        }
+    }
+
+    @Test
+    void smallQueriesStayOnTheCallingThread() {
+        assertFalse(ParallelQuery.worthIt(POOL, ParallelQuery.THRESHOLD - 1));
+        assertFalse(ParallelQuery.worthIt(null, Integer.MAX_VALUE));
+        assertFalse(ParallelQuery.worthIt(new ForkJoinPool(1), Integer.MAX_VALUE));
+        assertTrue(ParallelQuery.worthIt(POOL, ParallelQuery.THRESHOLD));
+    }
+}
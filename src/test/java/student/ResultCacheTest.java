@@ -0,0 +1,76 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the cache of sorted query results.
+ */
+public class ResultCacheTest {
+    private static final Catalog CATALOG = new Catalog(List.of(
+            new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000)));
+
+    @Test
+    void keyIgnoresConditionOrderAndRepeats() {
+        FilterCondition rating = new NumericCondition(GameData.RATING, Operations.GREATER_THAN, 8);
+        FilterCondition name = new NameCondition(Operations.CONTAINS, "GO");
+        assertEquals("average>8.0,objectname~=go|RANK+",
+                ResultCache.key(List.of(rating, name), GameData.RANK, true));
+        assertEquals(ResultCache.key(List.of(rating, name), GameData.RANK, true),
+                ResultCache.key(List.of(name, rating, name), GameData.RANK, true));
+        assertNotEquals(ResultCache.key(List.of(name), GameData.RANK, true),
+                ResultCache.key(List.of(name), GameData.RANK, false));
+        assertNull(ResultCache.key(List.of(game -> true), GameData.NAME, true));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudget() {
+        ResultCache cache = new ResultCache(3 * (96 + 2 + 4 * 100));
+        for (String key : new String[] {"a", "b", "c"}) {
+            assertNull(cache.get(CATALOG, key, 100));
+            cache.put(CATALOG, key, List.of(), new int[100], true);
+        }
+        assertNotNull(cache.get(CATALOG, "a", 1));
+        cache.put(CATALOG, "d", List.of(), new int[100], true);
+        assertNull(cache.get(CATALOG, "b", 1));
+        assertNotNull(cache.get(CATALOG, "a", 1));
+        assertNotNull(cache.get(CATALOG, "d", 1));
+        assertEquals(3, cache.size());
+        assertEquals(3, cache.hits());
+        assertEquals(4, cache.misses());
+
+        cache.put(CATALOG, "huge", List.of(), new int[1000], true);
+        assertNull(cache.get(CATALOG, "huge", 1));
+        cache.setBudget(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.used());
+    }
+
+    @Test
+    void leadingRowsServeShorterPages() {
+        ResultCache cache = new ResultCache(1 << 20);
+        assertNull(cache.get(CATALOG, "k", 20));
+        cache.put(CATALOG, "k", List.of(), new int[20], false);
+        assertNotNull(cache.get(CATALOG, "k", 20));
+        assertNull(cache.get(CATALOG, "k", 21));
+        cache.put(CATALOG, "k", List.of(), new int[5], true);
+        assertNotNull(cache.get(CATALOG, "k", Integer.MAX_VALUE));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void anotherCatalogEmptiesTheCache() {
+        ResultCache cache = new ResultCache(1 << 20);
+        cache.get(CATALOG, "k", 1);
+        cache.put(CATALOG, "k", List.of(), new int[] {0}, true);
+        Catalog other = new Catalog(List.of());
+        assertNull(cache.get(other, "k", 1));
+        assertEquals(0, cache.size());
+        cache.put(CATALOG, "k", List.of(), new int[] {0}, true);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,89 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the compressed row bitmap, checked against java.util.BitSet.
+ */
+public class RowBitmapTest {
+    private static final int SIZE = 10_000;
+
+    // helper method
+    private static int[] randomRows(Random random, int count) {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = random.nextInt(SIZE);
+        }
+        return rows;
+    }
+
+    // helper method
+    private static BitSet bits(int[] rows) {
+        BitSet bits = new BitSet(SIZE);
+        for (int row : rows) {
+            bits.set(row);
+        }
+        return bits;
+    }
+
+    @Test
+    void setOperationsMatchBitSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            int[] a = randomRows(random, random.nextInt(3000));
+            int[] b = randomRows(random, random.nextInt(300));
+            RowBitmap left = RowBitmap.of(SIZE, a, 0, a.length);
+            RowBitmap right = RowBitmap.of(SIZE, b, 0, b.length);
+
+            BitSet and = bits(a);
+            and.and(bits(b));
+            BitSet or = bits(a);
+            or.or(bits(b));
+            BitSet andNot = bits(a);
+            andNot.andNot(bits(b));
+
+            assertArrayEquals(bits(a).stream().toArray(), left.toArray());
+            assertEquals(bits(a).cardinality(), left.cardinality());
+            assertArrayEquals(and.stream().toArray(), left.and(right).toArray());
+            assertArrayEquals(or.stream().toArray(), left.or(right).toArray());
+            assertArrayEquals(andNot.stream().toArray(), left.andNot(right).toArray());
+            assertEquals(and.cardinality(), right.and(left).cardinality());
+        }
+    }
+
+    @Test
+    void slicesMatchBitSet() {
+        Random random = new Random(11);
+        for (int count : new int[] {1, 40, 150, 400, 5000}) {
+            int[] rows = randomRows(random, count + 20);
+            int[] slice = Arrays.copyOfRange(rows, 10, count + 10);
+            int[] sorted = slice.clone();
+            Arrays.sort(sorted);
+            int[] expected = bits(slice).stream().toArray();
+            assertArrayEquals(expected, RowBitmap.of(SIZE, rows, 10, count + 10).toArray());
+            assertArrayEquals(expected, RowBitmap.of(SIZE, sorted, 0, count).toArray());
+            assertEquals(expected.length, RowBitmap.of(SIZE, rows, 10, count + 10).cardinality());
+        }
+        // a few rows of a huge catalog only cost a few words
+        RowBitmap few = RowBitmap.of(1 << 30, new int[] {(1 << 30) - 1, 3, 64, 3}, 0, 4);
+        assertArrayEquals(new int[] {3, 64, (1 << 30) - 1}, few.toArray());
+    }
+
+    @Test
+    void allAndEmpty() {
+        assertEquals(130, RowBitmap.all(130).cardinality());
+        assertEquals(129, RowBitmap.all(130).toArray()[129]);
+        assertEquals(128, RowBitmap.all(128).cardinality());
+        assertTrue(RowBitmap.all(0).isEmpty());
+        assertTrue(RowBitmap.of(SIZE, new int[] {5}, 0, 0).isEmpty());
+        RowBitmap one = RowBitmap.of(SIZE, new int[] {5}, 0, 1);
+        assertTrue(RowBitmap.all(SIZE).andNot(RowBitmap.all(SIZE)).isEmpty());
+        assertEquals(SIZE - 1, RowBitmap.all(SIZE).andNot(one).cardinality());
+    }
+}
@@ -0,0 +1,46 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for equality and hashing of board games.
+ */
+public class TestBoardGame {
+    @Test
+    public void testEqualNameAndId() {
+        BoardGame game = new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000);
+        BoardGame same = new BoardGame("Go", 1, 3, 4, 10, 20, 1.0, 900, 2.5, 1990);
+        assertEquals(game, same);
+        assertEquals(same, game);
+        assertEquals(game.hashCode(), same.hashCode());
+    }
+
+    @Test
+    public void testDifferentIdSameName() {
+        BoardGame game = new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000);
+        BoardGame other = new BoardGame("Go", 2, 2, 5, 30, 30, 8.0, 100, 7.5, 2000);
+        assertNotEquals(game, other);
+        assertNotEquals(other, game);
+    }
+
+    @Test
+    public void testSameIdDifferentName() {
+        BoardGame game = new BoardGame("Belote", 15722, 4, 4, 30, 30, 1.5, 100, 6.0, 1920);
+        BoardGame other = new BoardGame("Coinche", 15722, 4, 4, 30, 30, 1.5, 100, 6.0, 1920);
+        assertNotEquals(game, other);
+        assertNotEquals(game, null);
+        assertNotEquals(game, "Belote");
+    }
+
+    @Test
+    public void testHashStableAcrossCalls() {
+        BoardGame game = new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001);
+        int hash = game.hashCode();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(hash, game.hashCode());
+        }
+        assertEquals(hash, new BoardGame("Go Fish", 2, 1, 1, 1, 1, 1.0, 1, 1.0, 1).hashCode());
+    }
+}
@@ -4,10 +4,19 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -41,6 +50,66 @@ public class TestPlanner {
         planner.reset();
     }
 
+    @Test
+    void testResultCacheServesEquivalentQueries() {
+        Planner cached = new Planner(games);
+        List<BoardGame> first = cached.filter("rating>8,minplayers>=2").toList();
+        assertEquals(0, cached.getCacheHits());
+        assertEquals(1, cached.getCacheMisses());
+        cached.reset();
+        assertEquals(first, cached.filter(" minplayers>=2 , rating>8,rating>8").toList());
+        assertEquals(first, cached.filter("").toList());
+        assertEquals(2, cached.getCacheHits());
+        cached.filter("", GameData.NAME, false);
+        assertEquals(2, cached.getCacheMisses());
+
+        Set<BoardGame> next = new HashSet<>(games);
+        next.add(new BoardGame("Gone", 9, 2, 4, 30, 30, 2.0, 900, 9.9, 2010));
+        cached.applyDelta(CatalogDelta.between(cached.getCatalog(), next));
+        List<BoardGame> reloaded = cached.filter("").toList();
+        assertEquals(4, reloaded.size());
+        assertTrue(reloaded.stream().anyMatch(game -> game.getName().equals("Gone")));
+        assertEquals(3, cached.getCacheMisses());
+
+        // name operations ignore case, so queries differing only in case share an entry
+        cached.reset();
+        List<BoardGame> chess = cached.filter("name==Chess").toList();
+        cached.reset();
+        assertEquals(chess, cached.filter("name==cHESS").toList());
+        cached.reset();
+        List<BoardGame> later = cached.filter("name>=M").toList();
+        cached.reset();
+        assertEquals(later, cached.filter("name>=m").toList());
+        assertEquals(1, chess.size());
+        assertEquals(2, later.size());
+        assertEquals(4, cached.getCacheHits());
+        assertEquals(5, cached.getCacheMisses());
+    }
+
+    @Test
+    void testPagesMatchSortedResult() {
+        Set<BoardGame> many = randomGames(5000);
+        for (GameData sortOn : new GameData[] {GameData.NAME, GameData.DIFFICULTY}) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                List<BoardGame> all = new Planner(many).filter("minplayers!=2", sortOn, ascending)
+                        .toList();
+                Planner paging = new Planner(many);
+                paging.filter("minplayers!=2");
+                int[][] pages = {{0, 20}, {20, 20}, {40, 20}, {0, 0}, {3000, 1000}, {3700, 50},
+                    {9000, 5}};
+                for (int[] page : pages) {
+                    int from = Math.min(page[0], all.size());
+                    int to = Math.min(page[0] + page[1], all.size());
+                    assertEquals(all.subList(from, to),
+                            paging.filter("", sortOn, ascending, page[0], page[1]).toList());
+                }
+                assertTrue(paging.getCacheHits() > 0);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new Planner(games).filter("", GameData.NAME, true, -1, 10));
+    }
+
     // helper method
     private void assertStreamContains(Stream<BoardGame> stream, String[] expectedNames) {
         List<String> actual = stream.map(BoardGame::getName).toList();
@@ -64,6 +133,25 @@ public class TestPlanner {
         assertStreamContains(result, expected);
     }
 
+    @Test
+    void testFilterByNameComparisons() {
+        assertStreamContains(planner.filter("name > go fish"),
+                new String[] {"golang", "GoRami", "Monopoly", "Tucano"});
+        planner.reset();
+        assertStreamContains(planner.filter("name <= GO"), new String[] {"17 days", "Chess", "Go"});
+        planner.reset();
+        assertStreamContains(planner.filter("name != go,name<h"),
+                new String[] {"17 days", "Chess", "Go Fish", "golang", "GoRami"});
+        planner.reset();
+        assertStreamContains(planner.filter("name == CHESS"), new String[] {"Chess"});
+    }
+
+    @Test
+    void testSortByNameDescending() {
+        assertStreamContains(planner.filter("name~=GO", GameData.NAME, false),
+                new String[] {"GoRami", "golang", "Go Fish", "Go"});
+    }
+
     @Test
     void testFilterByMinPlayers() {
         Stream<BoardGame> result = planner.filter("minPlayers>=6");
@@ -110,6 +198,256 @@ public class TestPlanner {
         assertEquals("Chess", result.findFirst().get().getName());
     }
 
+    @Test
+    void testSortByMaxTimeDescendingWithFilter() {
+        Stream<BoardGame> result = planner.filter("rating>=8", GameData.MAX_TIME, false);
+        String[] expected = {"Tucano", "17 days", "golang", "GoRami", "Chess"};
+        assertStreamContains(result, expected);
+    }
+
+    @Test
+    void testProgressiveFilterNarrowsPreviousResult() {
+        assertEquals(7, planner.filter("minplayers>=2").count());
+        assertStreamContains(planner.filter("rating>8", GameData.YEAR),
+                new String[] {"GoRami", "golang", "Chess"});
+        assertStreamContains(planner.filter("", GameData.YEAR, false),
+                new String[] {"Chess", "golang", "GoRami"});
+        planner.reset();
+        assertEquals(8, planner.filter("").count());
+    }
+
+    @Test
+    void testProgressiveFilterAfterCatalogChange() {
+        Planner reloaded = new Planner(games);
+        assertEquals(4, reloaded.filter("name~=go").count());
+        Set<BoardGame> next = new HashSet<>(games);
+        next.add(new BoardGame("Gone", 9, 2, 4, 30, 30, 2.0, 900, 6.0, 2010));
+        reloaded.applyDelta(CatalogDelta.between(reloaded.getCatalog(), next));
+        assertStreamContains(reloaded.filter("rating<7"), new String[] {"Go Fish", "Gone"});
+    }
+
+    // helper method
+    private static Set<BoardGame> randomGames(int count) {
+        Random random = new Random(42);
+        Set<BoardGame> many = new LinkedHashSet<>();
+        for (int id = 0; id < count; id++) {
+            many.add(new BoardGame("Game " + random.nextInt(50), id, random.nextInt(4) + 1, 8,
+                    10, 60, random.nextInt(5) / 2.0, id, 5.0, 2000 + random.nextInt(20)));
+        }
+        return many;
+    }
+
+    @Test
+    void testSortMatchesStableSortForBroadAndNarrowResults() {
+        Set<BoardGame> many = randomGames(2000);
+        List<BoardGame> inOrder = List.copyOf(many);
+        Comparator<BoardGame> byDifficulty = Comparator.comparingDouble(BoardGame::getDifficulty);
+        Map<String, Predicate<BoardGame>> filters = Map.of(
+                "", game -> true,
+                "minplayers<=2", game -> game.getMinPlayers() <= 2,
+                "minplayers==1,yearpublished<2002",
+                game -> game.getMinPlayers() == 1 && game.getYearPublished() < 2002);
+        for (Map.Entry<String, Predicate<BoardGame>> filter : filters.entrySet()) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                IPlanner fresh = new Planner(many);
+                Predicate<BoardGame> keep = filter.getValue();
+                List<BoardGame> expected = inOrder.stream().filter(keep)
+                        .sorted(ascending ? byDifficulty : byDifficulty.reversed()).toList();
+                List<BoardGame> actual =
+                        fresh.filter(filter.getKey(), GameData.DIFFICULTY, ascending).toList();
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void testIndexedRangeFiltersMatchScan() {
+        Set<BoardGame> many = randomGames(2000);
+        Map<String, Predicate<BoardGame>> filters = Map.of(
+                "rank<50", game -> game.getRank() < 50,
+                "rank<=50,minplayers>=2", game -> game.getRank() <= 50 && game.getMinPlayers() >= 2,
+                "rank>1950", game -> game.getRank() > 1950,
+                "rank>=1950,difficulty==2.0",
+                game -> game.getRank() >= 1950 && game.getDifficulty() == 2.0,
+                "rank==7", game -> game.getRank() == 7,
+                "rank==-1", game -> false,
+                "name==game 7,rank<1000",
+                game -> game.getName().equals("Game 7") && game.getRank() < 1000,
+                "name>Game 48", game -> game.getName().compareTo("Game 48") > 0,
+                "name<=Game 10", game -> game.getName().compareTo("Game 10") <= 0,
+                "name!=Game 7,rank!=3,difficulty<=1.5", game -> !game.getName().equals("Game 7")
+                        && game.getRank() != 3 && game.getDifficulty() <= 1.5);
+        for (Map.Entry<String, Predicate<BoardGame>> filter : filters.entrySet()) {
+            List<BoardGame> expected = many.stream().filter(filter.getValue())
+                    .sorted(Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER))
+                    .toList();
+            assertEquals(expected, new Planner(many).filter(filter.getKey()).toList(),
+                    filter.getKey());
+        }
+    }
+
+    @Test
+    void testCountMatchesFilter() {
+        Planner counting = new Planner(games);
+        assertEquals(8, counting.count(""));
+        assertEquals(7, counting.count("minplayers>=2"));
+        assertEquals(3, counting.count("rating>8"));
+        assertStreamContains(counting.filter(""), new String[] {"Chess", "golang", "GoRami"});
+        counting.reset();
+        assertEquals(2, counting.count("name~=go,maxplayers!=10,maxplayers!=7"));
+    }
+
+    @Test
+    void testFiltersBuildIndexesOnlyWhenWorthIt() {
+        Planner planner = new Planner(randomGames(5000));
+        Catalog catalog = planner.getCatalog();
+        for (int i = 0; i < 3; i++) {
+            planner.reset();
+            assertTrue(planner.count("minplayers>1") > 2500);
+        }
+        assertFalse(catalog.hasSortIndex(GameData.MIN_PLAYERS));
+
+        planner.reset();
+        assertEquals(100, planner.count("rank<100"));
+        assertFalse(catalog.hasSortIndex(GameData.RANK));
+        planner.reset();
+        assertEquals(100, planner.count("rank<100"));
+        assertTrue(catalog.hasSortIndex(GameData.RANK));
+        planner.reset();
+        assertEquals(4900, planner.count("rank>=100"));
+
+        for (int i = 0; i < 3; i++) {
+            planner.reset();
+            assertTrue(planner.count("name>=Game 1") > 2500);
+        }
+        assertFalse(catalog.hasSortIndex(GameData.NAME));
+        planner.reset();
+        int named = planner.count("name==Game 7");
+        assertFalse(catalog.hasSortIndex(GameData.NAME));
+        planner.reset();
+        assertEquals(named, planner.count("name==game 7"));
+        assertTrue(catalog.hasSortIndex(GameData.NAME));
+        assertTrue(named > 0);
+    }
+
+    @Test
+    void testBroadConditionsUseCompiledFilterByDefault() {
+        Set<BoardGame> many = randomGames(5000);
+        Planner planner = new Planner(many);
+        assertEquals(many.size(), planner.count("maxplayers>=2,minplaytime<=10"));
+        Catalog catalog = planner.getCatalog();
+        assertTrue(catalog.compiledFilters().containsKey("maxplayers>=2,minplaytime<=10"));
+
+        planner.reset();
+        long expected = many.stream().filter(g -> g.getMinPlayers() == 1
+                && g.getYearPublished() < 2005).count();
+        assertEquals(expected, planner.count("minplayers==1,yearpublished<2005"));
+        assertEquals(1, catalog.compiledFilters().size());
+    }
+
+    @Test
+    void testVectorizedMatchesRowAtATime() {
+        Set<BoardGame> many = randomGames(5000);
+        String[] steps = {"name~=1", "minplayers!=3", "yearpublished<2015,difficulty>=1"};
+        Planner vectorized = new Planner(many);
+        Planner rowAtATime = new Planner(many);
+        rowAtATime.setVectorized(false);
+        for (String step : steps) {
+            assertEquals(rowAtATime.filter(step, GameData.RANK).toList(),
+                    vectorized.filter(step, GameData.RANK).toList(), step);
+        }
+        String all = String.join(",", steps);
+        vectorized = new Planner(many);
+        rowAtATime = new Planner(many);
+        rowAtATime.setVectorized(false);
+        assertEquals(rowAtATime.filter(all, GameData.RANK).toList(),
+                vectorized.filter(all, GameData.RANK).toList());
+        // none of the conditions was answered by an index, so every row went through the scans
+        for (Planner planner : List.of(vectorized, rowAtATime)) {
+            for (GameData field : List.of(GameData.NAME, GameData.MIN_PLAYERS, GameData.YEAR,
+                    GameData.DIFFICULTY)) {
+                assertFalse(planner.getCatalog().hasSortIndex(field), field.name());
+            }
+        }
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        Set<BoardGame> many = randomGames(200_000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean ascending : new boolean[] {true, false}) {
+                Planner parallel = new Planner(many);
+                parallel.setPool(pool);
+                Planner sequential = new Planner(many);
+                sequential.setPool(null);
+                // each step keeps more rows than the parallel threshold, so both the first
+                // scan and the narrowing of the retained rows are split into chunks
+                for (String step : new String[] {"", "name~=game", "minplayers!=3",
+                        "yearpublished<2017"}) {
+                    assertIterableEquals(
+                            sequential.filter(step, GameData.DIFFICULTY, ascending).toList(),
+                            parallel.filter(step, GameData.DIFFICULTY, ascending).toList(), step);
+                }
+            }
+            String all = "name~=1,minplayers!=3,yearpublished<2017";
+            Planner parallel = new Planner(many);
+            parallel.setPool(pool);
+            Planner sequential = new Planner(many);
+            sequential.setPool(null);
+            assertEquals(sequential.count(all), parallel.count(all));
+            assertIterableEquals(sequential.filter("", GameData.RANK).toList(),
+                    parallel.filter("", GameData.RANK).toList());
+            for (Planner planner : List.of(parallel, sequential)) {
+                assertFalse(planner.getCatalog().hasSortIndex(GameData.MIN_PLAYERS));
+                assertFalse(planner.getCatalog().hasSortIndex(GameData.YEAR));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testStreamSortsOnlyWhenRead() {
+        Planner lazy = new Planner(games);
+        assertEquals(7, lazy.filter("minplayers>=2", GameData.RATING, false).count());
+        assertEquals(7, lazy.filter("", GameData.RATING, false).count());
+        assertEquals(0, lazy.getCacheHits());
+
+        Stream<BoardGame> read = lazy.filter("", GameData.RATING, false);
+        Spliterator<BoardGame> result = read.spliterator();
+        assertTrue(result.hasCharacteristics(Spliterator.SIZED | Spliterator.SORTED));
+        assertEquals(7, result.getExactSizeIfKnown());
+        List<BoardGame> sorted = StreamSupport.stream(result, false).toList();
+        assertEquals(sorted.stream().sorted(result.getComparator()).toList(), sorted);
+        assertEquals("Chess", sorted.get(0).getName());
+
+        assertEquals(sorted, lazy.filter("", GameData.RATING, false).parallel().toList());
+        assertEquals(1, lazy.getCacheHits());
+    }
+
+    @Test
+    void testBoundPredicatesMatchCheck() {
+        Catalog catalog = new Catalog(games);
+        for (Operations operation : Operations.values()) {
+            if (operation == Operations.CONTAINS) {
+                continue;
+            }
+            for (int target = 0; target < 12; target++) {
+                List<FilterCondition> conditions = List.of(
+                        new NumericCondition(GameData.MIN_PLAYERS, operation, target),
+                        new NumericCondition(GameData.RATING, operation, target * 0.5 + 4),
+                        new NameCondition(operation, "Go" + "fish".substring(0, target % 5)));
+                for (FilterCondition condition : conditions) {
+                    IntPredicate bound = condition.bind(catalog);
+                    for (int row = 0; row < catalog.size(); row++) {
+                        assertEquals(condition.check(catalog.game(row)), bound.test(row));
+                    }
+                }
+            }
+        }
+    }
+
     @Test
     void combineTest(){
         Stream<BoardGame> result = planner.filter("minPlayers>=6,maxPlayTime<=100",GameData.YEAR,false);
@@ -147,4 +485,147 @@ public class TestPlanner {
         planner.reset();
         assertEquals(games.size(), planner.filter("").count());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testApplyDelta() {
+        Planner reloaded = new Planner(games);
+        Set<BoardGame> next = new HashSet<>(games);
+        next.removeIf(game -> game.getName().equals("Chess") || game.getName().equals("Go"));
+        next.add(new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 1999));
+        next.add(new BoardGame("Risk", 9, 2, 6, 60, 240, 2.0, 900, 5.5, 1959));
+
+        CatalogDelta delta = CatalogDelta.between(reloaded.getCatalog(), next);
+        assertEquals(1, delta.getInserted());
+        assertEquals(1, delta.getUpdated());
+        assertEquals(1, delta.getDeleted());
+
+        Stream<BoardGame> before = reloaded.filter("", GameData.YEAR);
+        reloaded.applyDelta(delta);
+        assertEquals("Go", before.findFirst().get().getName());
+        assertStreamContains(reloaded.filter("year<2000", GameData.YEAR),
+                new String[] {"Risk", "Go"});
+        reloaded.reset();
+        assertEquals(next.size(), reloaded.filter("").count());
+    }
+
+    @Test
+    void testApplyEmptyDelta() {
+        Planner reloaded = new Planner(games);
+        Catalog catalog = reloaded.getCatalog();
+        CatalogDelta delta = CatalogDelta.between(catalog, games);
+        assertTrue(delta.isEmpty());
+        reloaded.applyDelta(delta);
+        assertSame(catalog, reloaded.getCatalog());
+    }
+
+    @Test
+    void testApplyDeltaPatchesDerivedStructures() {
+        Set<BoardGame> many = randomGames(3000);
+        Planner reloaded = new Planner(many);
+        Catalog catalog = reloaded.getCatalog();
+        GameData[] sorted = {GameData.NAME, GameData.DIFFICULTY, GameData.YEAR};
+        for (GameData field : sorted) {
+            catalog.sortIndex(field);
+        }
+        catalog.names().containing("ame 1");
+        List<BoardGame> unaffected = reloaded.filter("name==Game 2").toList();
+        reloaded.reset();
+        assertEquals(0, reloaded.filter("difficulty>5").count());
+        reloaded.reset();
+        assertEquals(2, reloaded.getCacheMisses());
+
+        BoardGame changed = many.stream().filter(game -> game.getName().equals("Game 1"))
+                .findFirst().get();
+        Set<BoardGame> next = new LinkedHashSet<>(many);
+        next.remove(changed);
+        next.add(new BoardGame("Game 1", changed.getId(), 1, 8, 10, 60, 9.0, 1, 5.0, 1990));
+        reloaded.applyDelta(CatalogDelta.between(catalog, next));
+        Catalog patched = reloaded.getCatalog();
+        assertSame(catalog.names(), patched.names());
+        assertSame(catalog.histogram(GameData.DIFFICULTY), patched.histogram(GameData.DIFFICULTY));
+        assertSame(catalog.histogram(GameData.NAME), patched.histogram(GameData.NAME));
+        assertSortIndexesMatchFreshBuild(patched, sorted);
+        assertEquals(unaffected, reloaded.filter("name==Game 2").toList());
+        assertEquals(1, reloaded.getCacheHits());
+        reloaded.reset();
+        assertEquals(1, reloaded.filter("difficulty>5").count());
+        assertEquals(3, reloaded.getCacheMisses());
+        reloaded.reset();
+
+        next.add(new BoardGame("Gopher", 5000, 2, 4, 30, 30, 1.0, 2, 5.0, 2020));
+        next.add(new BoardGame("game 10", 5001, 2, 4, 30, 30, 1.0, 3, 5.0, 2021));
+        reloaded.applyDelta(CatalogDelta.between(patched, next));
+        Catalog merged = reloaded.getCatalog();
+        Catalog fresh = new Catalog(next);
+        assertEquals(fresh.names().size(), merged.names().size());
+        for (String part : new String[] {"go", "ame 1", "gopher", "game 10"}) {
+            assertArrayEquals(fresh.names().containing(part), merged.names().containing(part));
+        }
+        assertSortIndexesMatchFreshBuild(merged, sorted);
+        assertEquals(new Planner(next).filter("name~=go", GameData.NAME).toList(),
+                reloaded.filter("name~=go", GameData.NAME).toList());
+    }
+
+    @Test
+    void testApplyDeltaDropsUnusedNames() {
+        Set<BoardGame> current = new LinkedHashSet<>();
+        for (int id = 0; id < 200; id++) {
+            current.add(new BoardGame("Game " + id, id, 2, 4, 30, 30, 1.0, id, 5.0, 2000));
+        }
+        Planner reloaded = new Planner(current);
+        reloaded.getCatalog().sortIndex(GameData.NAME);
+        reloaded.getCatalog().names().containing("ame 1");
+        int nextId = current.size();
+        for (int round = 0; round < 50; round++) {
+            // every round renames some games and swaps others for new ones
+            Set<BoardGame> next = new LinkedHashSet<>();
+            for (BoardGame game : current) {
+                if (game.getId() % 10 == round % 10) {
+                    next.add(new BoardGame("Renamed " + round + "-" + game.getId(), game.getId(),
+                            2, 4, 30, 30, 1.0, game.getId(), 5.0, 2000));
+                } else if (game.getId() % 10 != (round + 5) % 10) {
+                    next.add(game);
+                }
+            }
+            for (int i = 0; i < 20; i++, nextId++) {
+                next.add(new BoardGame("Game " + nextId, nextId, 2, 4, 30, 30, 1.0, nextId, 5.0,
+                        2000));
+            }
+            reloaded.applyDelta(CatalogDelta.between(reloaded.getCatalog(), next));
+            current = next;
+
+            Catalog catalog = reloaded.getCatalog();
+            assertEquals(current.size(), catalog.size());
+            assertTrue(catalog.names().size() <= current.size() * 4 / 3 + 1,
+                    "round " + round + ": " + catalog.names().size() + " names");
+        }
+        Catalog catalog = reloaded.getCatalog();
+        Catalog fresh = new Catalog(current);
+        assertSortIndexesMatchFreshBuild(catalog, new GameData[] {GameData.NAME});
+        for (String part : new String[] {"ame 1", "renamed 4", "game 1200"}) {
+            assertEquals(fresh.names().containing(part).length,
+                    catalog.names().containing(part).length, part);
+        }
+        assertEquals(new Planner(current).filter("name>=Renamed 3", GameData.NAME).toList(),
+                reloaded.filter("name>=Renamed 3", GameData.NAME).toList());
+        reloaded.reset();
+        assertEquals(new Planner(current).filter("name~=game 1", GameData.NAME).toList(),
+                reloaded.filter("name~=game 1", GameData.NAME).toList());
+    }
+
+    // helper method
+    private static void assertSortIndexesMatchFreshBuild(Catalog catalog, GameData[] fields) {
+        int[] all = new int[catalog.size()];
+        for (int row = 0; row < all.length; row++) {
+            all[row] = row;
+        }
+        for (GameData field : fields) {
+            assertTrue(catalog.hasSortIndex(field));
+            SortIndex fresh = SortIndex.build(catalog, field);
+            for (boolean ascending : new boolean[] {true, false}) {
+                assertArrayEquals(fresh.sort(all, all.length, ascending),
+                        catalog.sortIndex(field).sort(all, all.length, ascending));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for contains searches through the trigram index.
+ */
+public class TrigramIndexTest {
+    @Test
+    void containingMatchesScanOfEveryName() {
+        Random random = new Random(11);
+        String alphabet = "abcAB \u00c9e-";
+        String[] rowNames = new String[3000];
+        for (int row = 0; row < rowNames.length; row++) {
+            StringBuilder name = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            rowNames[row] = name.toString();
+        }
+        NameDictionary names = NameDictionary.build(rowNames, new int[rowNames.length]);
+
+        List<String> queries = new ArrayList<>(List.of("", "a", "bc", "aaaa", "abab", "zzz",
+                "\u00e9", "\u00e9e-", "c a"));
+        for (int i = 0; i < 200; i++) {
+            String name = names.folded(random.nextInt(names.size()));
+            int from = random.nextInt(name.length() + 1);
+            queries.add(name.substring(from, Math.min(name.length(), from + random.nextInt(6))));
+        }
+        for (String query : queries) {
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < names.size(); id++) {
+                if (names.folded(id).contains(query)) {
+                    expected.add(id);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int id : names.containing(query)) {
+                actual.add(id);
+            }
+            assertEquals(expected, actual, query);
+        }
+    }
+
+    @Test
+    void candidatesHoldEveryTrigram() {
+        String[] rowNames = {"Go Fish", "golang", "GoRami", "Gone", "Ingot", "go"};
+        NameDictionary names = NameDictionary.build(rowNames, new int[rowNames.length]);
+        TrigramIndex index = TrigramIndex.build(names);
+        assertEquals(1, index.candidates("gol").length);
+        assertEquals(0, index.candidates("gox").length);
+        assertEquals(1, index.candidates("ngo").length);
+        assertEquals(1, index.candidates("o f").length);
+        assertEquals(1, index.candidates("gon").length);
+        assertEquals(1, index.candidates("ora").length);
+    }
+}